@@ -0,0 +1,155 @@
+package com.ares.concurrency;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 同一个 key 的任务按提交顺序串行执行，不同 key 的任务在共享线程池上并行执行。
+ * <p>
+ * key 按哈希分到固定数量的条带上，每个条带是一条无锁任务链：任务进入条带的队列，只有把条带从空闲
+ * 切换为已调度的提交者才向线程池提交一次排空任务，同一条带任意时刻最多被一个线程执行。排空时每批
+ * 最多执行 batchSize 个任务后重新提交，避免一个繁忙的条带长期占住线程。不同 key 可能落在同一条带上
+ * 而被串行化，条带数越多冲突越少。
+ * <p>
+ * 线程池拒绝或以 CallerRunsPolicy 在当前线程直接执行重新提交的排空任务时，在当前线程循环排空，
+ * 不会递归。
+ */
+public class KeyedSerialExecutor {
+
+  private static final Logger log = LoggerFactory.getLogger(KeyedSerialExecutor.class);
+  private static final int DEFAULT_BATCH_SIZE = 16;
+  // 当前线程正在重新提交的条带；线程池在当前线程直接执行它时换成 BOUNCED，由外层循环继续排空
+  private static final ThreadLocal<Object> HANDOFF = new ThreadLocal<>();
+  private static final Object BOUNCED = new Object();
+
+  private final Executor executor;
+  private final Stripe[] stripes;
+  private final int mask;
+  private final int batchSize;
+
+  public KeyedSerialExecutor(Executor executor) {
+    this(executor, Runtime.getRuntime().availableProcessors() * 64, DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * @param stripes   条带数，向上取整为 2 的幂
+   * @param batchSize 条带每次占用线程时最多执行的任务数
+   */
+  public KeyedSerialExecutor(Executor executor, int stripes, int batchSize) {
+    if (stripes <= 0 || batchSize <= 0) {
+      throw new IllegalArgumentException("Stripes and batch size must be positive");
+    }
+    int size = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+    this.executor = executor;
+    this.stripes = new Stripe[size];
+    for (int i = 0; i < size; i++) {
+      this.stripes[i] = new Stripe();
+    }
+    this.mask = size - 1;
+    this.batchSize = batchSize;
+  }
+
+  public void execute(Object key, Runnable task) {
+    if (task == null) {
+      throw new NullPointerException();
+    }
+    stripeOf(key).submit(task);
+  }
+
+  public <T> CompletableFuture<T> submit(Object key, Supplier<T> task) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    execute(key, () -> {
+      try {
+        future.complete(task.get());
+      } catch (Throwable t) {
+        future.completeExceptionally(t);
+      }
+    });
+    return future;
+  }
+
+  private Stripe stripeOf(Object key) {
+    int h = key == null ? 0 : key.hashCode();
+    return stripes[(h ^ (h >>> 16)) & mask];
+  }
+
+  private final class Stripe implements Runnable {
+
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private void submit(Runnable task) {
+      tasks.offer(task);
+      if (scheduled.compareAndSet(false, true)) {
+        try {
+          executor.execute(this);
+        } catch (RejectedExecutionException e) {
+          // 线程池拒绝时撤回本次提交。撤回前其他提交者看到已调度状态直接返回，它们的任务没有人
+          // 负责，抢回调度权后在当前线程排空
+          tasks.remove(task);
+          scheduled.set(false);
+          if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) {
+            run();
+          }
+          throw e;
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      if (HANDOFF.get() == this) {
+        HANDOFF.set(BOUNCED);
+        return;
+      }
+      while (true) {
+        for (int i = 0; i < batchSize; i++) {
+          Runnable task = tasks.poll();
+          if (task == null) {
+            break;
+          }
+          try {
+            task.run();
+          } catch (Throwable t) {
+            log.error("keyed task failed", t);
+          }
+        }
+
+        if (tasks.isEmpty()) {
+          scheduled.set(false);
+          // 清除标记后可能有新任务进来，但提交者看到的是已调度状态，需要再检查一次
+          if (tasks.isEmpty() || !scheduled.compareAndSet(false, true)) {
+            return;
+          }
+        }
+        if (handOff()) {
+          return;
+        }
+      }
+    }
+
+    /**
+     * 把剩余任务交给线程池排空
+     *
+     * @return 为 false 说明线程池已饱和、已关闭或在当前线程直接执行，由当前线程继续排空，保证链上
+     *     任务不丢
+     */
+    private boolean handOff() {
+      HANDOFF.set(this);
+      try {
+        executor.execute(this);
+        return HANDOFF.get() != BOUNCED;
+      } catch (RejectedExecutionException e) {
+        return false;
+      } finally {
+        HANDOFF.remove();
+      }
+    }
+  }
+}
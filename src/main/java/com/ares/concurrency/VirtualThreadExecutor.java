@@ -0,0 +1,276 @@
+package com.ares.concurrency;
+
+import com.ares.concurrency.mdc.ThreadWrapper;
+import jakarta.annotation.Nonnull;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 每个任务一个虚拟线程的执行器，提交时通过 ThreadWrapper 透传 MDC。
+ * <p>
+ * 虚拟线程本身不限量，为了不压垮下游的连接池（如 TransferQueuePool），用信号量限制整个执行器以及
+ * 每个 key 的并发数。等待许可发生在任务自己的虚拟线程里，不占用平台线程。
+ * <p>
+ * 项目以 Java 17 编译，虚拟线程 API 通过反射获取；运行在 Java 21 之前的 JVM 上时退化为平台线程池。
+ * 此时许可在提交线程上获取，拿到许可后才交给线程池，线程数不超过 maxConcurrency，代价是名额用尽时
+ * execute 会阻塞提交线程，提交线程等待期间被中断则抛出 RejectedExecutionException。
+ */
+public class VirtualThreadExecutor extends AbstractExecutorService {
+
+  private static final Logger log = LoggerFactory.getLogger(VirtualThreadExecutor.class);
+
+  private final ExecutorService delegate;
+  private final boolean virtual;
+  private final Semaphore permits;
+  private final int maxConcurrency;
+  private final int maxConcurrencyPerKey;
+  private final Map<Object, KeyPermits> keyPermits = new ConcurrentHashMap<>();
+
+  // 某个 key 的信号量及引用数，引用数只在 keyPermits.compute 中修改，归零时移除
+  private static final class KeyPermits {
+
+    private final Semaphore semaphore;
+    private int users;
+
+    private KeyPermits(int permits) {
+      this.semaphore = new Semaphore(permits, true);
+    }
+  }
+
+  public VirtualThreadExecutor(String name) {
+    this(name, Integer.MAX_VALUE, Integer.MAX_VALUE);
+  }
+
+  public VirtualThreadExecutor(String name, int maxConcurrency) {
+    this(name, maxConcurrency, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param maxConcurrency       整个执行器同时运行的任务数上限
+   * @param maxConcurrencyPerKey 同一个 key 同时运行的任务数上限，只对带 key 的提交生效
+   */
+  public VirtualThreadExecutor(String name, int maxConcurrency, int maxConcurrencyPerKey) {
+    if (maxConcurrency <= 0 || maxConcurrencyPerKey <= 0) {
+      throw new IllegalArgumentException("Concurrency limits must be positive");
+    }
+    ExecutorService executor = newVirtualThreadExecutor(name);
+    this.virtual = executor != null;
+    this.delegate = virtual ? executor : newPlatformThreadExecutor(name, maxConcurrency);
+    this.maxConcurrency = maxConcurrency;
+    this.maxConcurrencyPerKey = maxConcurrencyPerKey;
+    this.permits = new Semaphore(maxConcurrency, true);
+  }
+
+  private static ExecutorService newVirtualThreadExecutor(String name) {
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      builder = builderClass.getMethod("name", String.class, long.class)
+          .invoke(builder, name + "-virtual-", 0L);
+      ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+      return (ExecutorService) Executors.class
+          .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+          .invoke(null, factory);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      log.debug("virtual threads are not available, falling back to platform threads");
+      return null;
+    }
+  }
+
+  private static ExecutorService newPlatformThreadExecutor(String name, int maxConcurrency) {
+    ThreadFactory factory = new DefaultThreadFactory(name, true);
+    if (maxConcurrency == Integer.MAX_VALUE) {
+      return Executors.newCachedThreadPool(factory);
+    }
+    // 许可已经限制了并发数，队列只会短暂容纳线程释放许可后、回到池中之前提交的任务
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60L,
+        TimeUnit.SECONDS, new LinkedBlockingQueue<>(), factory);
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  public boolean isVirtual() {
+    return virtual;
+  }
+
+  @Override
+  public void execute(@Nonnull Runnable command) {
+    execute(null, command);
+  }
+
+  /**
+   * 执行 command，与同一个 key 的其他任务共享 maxConcurrencyPerKey 个许可；key 为 null 时只受执行器
+   * 整体限制
+   */
+  public void execute(Object key, Runnable command) {
+    if (command == null) {
+      throw new NullPointerException();
+    }
+    Runnable task = ThreadWrapper.runnable(command);
+    if (virtual) {
+      delegate.execute(limited(key, task, command));
+    } else {
+      executeBounded(key, task, command);
+    }
+  }
+
+  public Future<?> submit(Object key, Runnable task) {
+    RunnableFuture<Void> future = newTaskFor(task, null);
+    execute(key, future);
+    return future;
+  }
+
+  public <T> Future<T> submit(Object key, Callable<T> task) {
+    RunnableFuture<T> future = newTaskFor(task);
+    execute(key, future);
+    return future;
+  }
+
+  /**
+   * 虚拟线程模式：在任务自己的虚拟线程里等待许可
+   */
+  private Runnable limited(Object key, Runnable task, Runnable command) {
+    return () -> {
+      KeyPermits perKey = key != null ? retain(key) : null;
+      try {
+        acquire(perKey);
+      } catch (InterruptedException e) {
+        // shutdownNow 时还在等待许可的任务不再执行
+        if (perKey != null) {
+          release(key);
+        }
+        if (command instanceof Future<?> future) {
+          future.cancel(false);
+        }
+        Thread.currentThread().interrupt();
+        return;
+      }
+      try {
+        task.run();
+      } finally {
+        releasePermits(key, perKey);
+      }
+    };
+  }
+
+  /**
+   * 平台线程模式：在提交线程上等待许可，等待中的任务不占用线程池的线程
+   */
+  private void executeBounded(Object key, Runnable task, Runnable command) {
+    KeyPermits perKey = key != null ? retain(key) : null;
+    try {
+      acquire(perKey);
+    } catch (InterruptedException e) {
+      if (perKey != null) {
+        release(key);
+      }
+      Thread.currentThread().interrupt();
+      throw new RejectedExecutionException("Interrupted while waiting for a permit: " + command);
+    }
+    try {
+      delegate.execute(() -> {
+        try {
+          task.run();
+        } finally {
+          releasePermits(key, perKey);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      releasePermits(key, perKey);
+      throw e;
+    }
+  }
+
+  /**
+   * 先拿 key 的许可再拿全局许可，排队等热点 key 时不占用全局名额
+   */
+  private void acquire(KeyPermits perKey) throws InterruptedException {
+    if (perKey != null) {
+      perKey.semaphore.acquire();
+    }
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      if (perKey != null) {
+        perKey.semaphore.release();
+      }
+      throw e;
+    }
+  }
+
+  private void releasePermits(Object key, KeyPermits perKey) {
+    permits.release();
+    if (perKey != null) {
+      perKey.semaphore.release();
+      release(key);
+    }
+  }
+
+  private KeyPermits retain(Object key) {
+    return keyPermits.compute(key, (k, current) -> {
+      KeyPermits perKey = current != null ? current : new KeyPermits(maxConcurrencyPerKey);
+      perKey.users++;
+      return perKey;
+    });
+  }
+
+  private void release(Object key) {
+    keyPermits.computeIfPresent(key, (k, current) -> --current.users == 0 ? null : current);
+  }
+
+  /**
+   * 正在运行的任务数，不包括等待许可的任务
+   */
+  public int getActiveCount() {
+    return maxConcurrency - permits.availablePermits();
+  }
+
+  /**
+   * 等待全局许可的任务数（估计值）
+   */
+  public int getWaitingCount() {
+    return permits.getQueueLength();
+  }
+
+  @Override
+  public void shutdown() {
+    delegate.shutdown();
+  }
+
+  @Nonnull
+  @Override
+  public List<Runnable> shutdownNow() {
+    return delegate.shutdownNow();
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return delegate.isShutdown();
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return delegate.isTerminated();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, @Nonnull TimeUnit unit)
+      throws InterruptedException {
+    return delegate.awaitTermination(timeout, unit);
+  }
+}
@@ -5,8 +5,16 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class CustomThreadPool {
 
@@ -16,20 +24,82 @@ public class CustomThreadPool {
   private final BlockingQueue<Runnable> taskQueue;
 
   /**
-   * 工作线程的集合
+   * 工作线程的集合，由 mainLock 保护
    */
   private final Set<WorkerThread> workers = new HashSet<>();
 
   /**
-   * 核心线程数（即固定线程数）
+   * 保护 workers 集合，并用于 awaitTermination 的等待与唤醒
+   */
+  private final ReentrantLock mainLock = new ReentrantLock();
+  private final Condition termination = mainLock.newCondition();
+
+  /**
+   * 存活的工作线程数，线程因空闲回收或关闭而退出前已递减
+   */
+  private final AtomicInteger workerCount = new AtomicInteger();
+
+  /**
+   * 普通模式下正在等待任务的线程数，为 0 说明队列出现积压，需要扩容
+   */
+  private final AtomicInteger idleCount = new AtomicInteger();
+
+  /**
+   * 核心线程数，空闲时也不会被回收
    */
   private final int corePoolSize;
 
+  /**
+   * 最大线程数，队列积压时线程数可以增长到该值
+   */
+  private final int maximumPoolSize;
+
+  /**
+   * 超过核心线程数的线程空闲多久后被回收
+   */
+  private final long keepAliveNanos;
+
   /**
    * 拒绝策略
    */
   private final RejectedExecutionHandler rejectionHandler;
 
+  /**
+   * 工作窃取模式：每个工作线程持有本地双端队列，工作线程内提交的任务压入本地队列，外部提交的任务分散到多个收件箱，空闲线程从其他线程的队列尾部窃取任务
+   */
+  private final boolean workStealing;
+
+  /**
+   * 工作窃取模式下外部提交任务的分段收件箱，数量为不小于核心线程数的 2 的幂
+   */
+  private final Inbox[] inboxes;
+
+  /**
+   * 工作窃取模式下所有工作线程的快照，用于窃取任务和唤醒，线程增减时在 mainLock 下重建
+   */
+  private volatile WorkerThread[] stealTargets;
+
+  /**
+   * 下一个工作线程的编号，决定其对应的收件箱，由 mainLock 保护
+   */
+  private int nextWorkerIndex;
+
+  /**
+   * 工作窃取模式下已挂起等待任务的工作线程，每个线程只在 idle 由 false 变为 true 时入队一次，
+   * 将 idle 改回 false 的一方负责把它移出队列
+   */
+  private final ConcurrentLinkedQueue<WorkerThread> idleWorkers = new ConcurrentLinkedQueue<>();
+
+  /**
+   * 空闲线程挂起的最长时间，仅作为丢失唤醒的兜底
+   */
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+  /**
+   * 普通模式下单次等待任务的最长时间，shutdown() 不中断线程，线程至多等待这么久就会发现状态变化
+   */
+  private static final long POLL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
   /**
    * 线程池状态 volatile 保证多线程间的可见性 0: RUNNING - 接受新任务，处理队列任务 1: SHUTDOWN - 不接受新任务，但处理队列任务 2: STOP -
    * 不接受新任务，不处理队列任务，中断正在执行的任务
@@ -48,19 +118,159 @@ public class CustomThreadPool {
    */
   public CustomThreadPool(int corePoolSize, int queueCapacity,
       RejectedExecutionHandler rejectionHandler) {
+    this(corePoolSize, queueCapacity, rejectionHandler, false);
+  }
+
+  /**
+   * 构造函数
+   *
+   * @param corePoolSize     核心线程数
+   * @param queueCapacity    任务队列容量，工作窃取模式下平均分配到各收件箱，本地队列中的任务计入
+   *                         对应收件箱的名额；按收件箱向上取整，至多多出收件箱数 - 1 个
+   * @param rejectionHandler 拒绝策略
+   * @param workStealing     是否启用工作窃取模式
+   */
+  public CustomThreadPool(int corePoolSize, int queueCapacity,
+      RejectedExecutionHandler rejectionHandler, boolean workStealing) {
+    this(corePoolSize, corePoolSize, 0, TimeUnit.SECONDS, queueCapacity, rejectionHandler,
+        workStealing);
+  }
+
+  /**
+   * 构造函数
+   *
+   * @param corePoolSize     核心线程数
+   * @param maximumPoolSize  最大线程数
+   * @param keepAliveTime    超过核心线程数的线程的最长空闲时间
+   * @param unit             keepAliveTime 的时间单位
+   * @param queueCapacity    任务队列容量，工作窃取模式下平均分配到各收件箱，本地队列中的任务计入
+   *                         对应收件箱的名额；按收件箱向上取整，至多多出收件箱数 - 1 个
+   * @param rejectionHandler 拒绝策略
+   * @param workStealing     是否启用工作窃取模式
+   */
+  public CustomThreadPool(int corePoolSize, int maximumPoolSize, long keepAliveTime,
+      TimeUnit unit, int queueCapacity, RejectedExecutionHandler rejectionHandler,
+      boolean workStealing) {
     if (corePoolSize <= 0 || queueCapacity <= 0) {
       throw new IllegalArgumentException("Invalid pool or queue size");
     }
+    if (maximumPoolSize < corePoolSize || keepAliveTime < 0) {
+      throw new IllegalArgumentException("Invalid maximum pool size or keep alive time");
+    }
     this.corePoolSize = corePoolSize;
-    this.taskQueue = new LinkedBlockingQueue<>(queueCapacity);
+    this.maximumPoolSize = maximumPoolSize;
+    this.keepAliveNanos = unit.toNanos(keepAliveTime);
     this.rejectionHandler = rejectionHandler;
+    this.workStealing = workStealing;
     this.state = RUNNING;
 
+    if (workStealing) {
+      int stripes = Integer.highestOneBit(Math.max(1, corePoolSize - 1)) << 1;
+      int stripeCapacity = Math.max(1, (queueCapacity + stripes - 1) / stripes);
+      this.taskQueue = null;
+      this.inboxes = new Inbox[stripes];
+      for (int i = 0; i < stripes; i++) {
+        inboxes[i] = new Inbox(stripeCapacity);
+      }
+      this.stealTargets = new WorkerThread[0];
+    } else {
+      this.taskQueue = new LinkedBlockingQueue<>(queueCapacity);
+      this.inboxes = null;
+    }
+
     // 预先创建并启动核心线程
     for (int i = 0; i < corePoolSize; i++) {
-      WorkerThread worker = new WorkerThread();
-      worker.start();
+      addWorker(null, true);
+    }
+  }
+
+  /**
+   * 新增一个工作线程
+   *
+   * @param firstTask 新线程执行的第一个任务，可以为 null
+   * @param core      是否以核心线程数为上限，否则以最大线程数为上限
+   * @return 线程数已达上限或线程池已关闭时返回 false
+   */
+  private boolean addWorker(Runnable firstTask, boolean core) {
+    int limit = core ? corePoolSize : maximumPoolSize;
+    while (true) {
+      int count = workerCount.get();
+      if (count >= limit) {
+        return false;
+      }
+      if (workerCount.compareAndSet(count, count + 1)) {
+        break;
+      }
+    }
+
+    WorkerThread worker;
+    mainLock.lock();
+    try {
+      if (state != RUNNING) {
+        workerCount.decrementAndGet();
+        return false;
+      }
+      worker = new WorkerThread(nextWorkerIndex++, firstTask);
       workers.add(worker);
+      if (workStealing) {
+        stealTargets = workers.toArray(new WorkerThread[0]);
+      }
+    } finally {
+      mainLock.unlock();
+    }
+    worker.start();
+    return true;
+  }
+
+  /**
+   * 工作线程退出时调用：从集合中移除；异常退出的线程由新线程替换
+   *
+   * @param worker            退出的线程
+   * @param completedAbruptly 是否因任务抛出 Error 等异常退出，此时 workerCount 尚未递减
+   */
+  private void workerExited(WorkerThread worker, boolean completedAbruptly) {
+    if (completedAbruptly) {
+      workerCount.decrementAndGet();
+    }
+    mainLock.lock();
+    try {
+      if (workStealing) {
+        // 本地队列中剩余的任务转移到收件箱，由其他线程继续执行；与 shutdownNow 的清空互斥，
+        // 转移的任务要么被其他线程执行，要么由 shutdownNow 返回
+        Runnable task;
+        while ((task = worker.stealLocal()) != null) {
+          worker.home.forceOffer(task);
+          signalIdleWorker();
+        }
+      }
+      workers.remove(worker);
+      if (workStealing) {
+        stealTargets = workers.toArray(new WorkerThread[0]);
+      }
+    } finally {
+      mainLock.unlock();
+    }
+    tryTerminate();
+
+    if (state == RUNNING && (completedAbruptly || workerCount.get() < corePoolSize)) {
+      addWorker(null, false);
+    }
+  }
+
+  /**
+   * 已关闭且所有线程都已退出时，唤醒 awaitTermination 的等待者
+   */
+  private void tryTerminate() {
+    if (state < SHUTDOWN || workerCount.get() != 0) {
+      return;
+    }
+    mainLock.lock();
+    try {
+      if (workers.isEmpty()) {
+        termination.signalAll();
+      }
+    } finally {
+      mainLock.unlock();
     }
   }
 
@@ -80,14 +290,63 @@ public class CustomThreadPool {
       return;
     }
 
+    if (workStealing) {
+      if (!offerStealing(task) && !addWorker(task, false)) {
+        rejectionHandler.rejectedExecution(task, this);
+      }
+      return;
+    }
+
     // 尝试将任务添加到队列
-    boolean offered = taskQueue.offer(task);
-    if (!offered) {
-      // 队列已满，执行拒绝策略
+    if (taskQueue.offer(task)) {
+      // 没有空闲线程接手，说明任务开始积压，在最大线程数内扩容
+      if (idleCount.get() == 0 && workerCount.get() < maximumPoolSize) {
+        addWorker(null, false);
+      }
+    } else if (!addWorker(task, false)) {
+      // 队列已满且线程数已达上限，执行拒绝策略
       rejectionHandler.rejectedExecution(task, this);
     }
   }
 
+  /**
+   * 工作窃取模式下入队：工作线程优先压入自己的本地队列，外部线程按线程 id 选择收件箱，已满时依次尝试其他收件箱
+   */
+  private boolean offerStealing(Runnable task) {
+    boolean offered = false;
+    if (Thread.currentThread() instanceof WorkerThread worker && worker.owner() == this) {
+      offered = worker.pushLocal(task);
+    }
+    if (!offered) {
+      int mask = inboxes.length - 1;
+      int home = (int) Thread.currentThread().getId() & mask;
+      for (int i = 0; i < inboxes.length && !offered; i++) {
+        offered = inboxes[(home + i) & mask].offer(task);
+      }
+    }
+    // 没有空闲线程可以唤醒，说明任务开始积压，在最大线程数内扩容
+    if (offered && !signalIdleWorker() && workerCount.get() < maximumPoolSize) {
+      addWorker(null, false);
+    }
+    return offered;
+  }
+
+  /**
+   * 唤醒一个挂起的工作线程；跳过已被其他提交者唤醒或自行找到任务的线程
+   *
+   * @return 是否唤醒了线程
+   */
+  private boolean signalIdleWorker() {
+    WorkerThread worker;
+    while ((worker = idleWorkers.poll()) != null) {
+      if (worker.idle.compareAndSet(true, false)) {
+        LockSupport.unpark(worker);
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * 优雅关闭线程池 1. 设置状态为 SHUTDOWN 2. 不再接受新任务 3. 等待队列中所有任务执行完毕
    */
@@ -95,6 +354,13 @@ public class CustomThreadPool {
     if (state < SHUTDOWN) {
       state = SHUTDOWN;
     }
+    if (workStealing) {
+      // 唤醒挂起的工作线程，让它们处理完剩余任务后退出
+      for (WorkerThread worker : stealTargets) {
+        LockSupport.unpark(worker);
+      }
+    }
+    tryTerminate();
     // 注意：这里没有中断线程。
     // 工作线程在 runLoop() 中会检查 state 和 队列状态，并自行决定何时终止。
   }
@@ -109,14 +375,34 @@ public class CustomThreadPool {
       state = STOP;
     }
 
-    // 中断所有工作线程
-    for (WorkerThread worker : workers) {
-      worker.interrupt();
-    }
-
-    // 清空队列
     List<Runnable> remainingTasks = new ArrayList<>();
-    taskQueue.drainTo(remainingTasks);
+    mainLock.lock();
+    try {
+      // 中断所有工作线程
+      for (WorkerThread worker : workers) {
+        worker.interrupt();
+      }
+
+      // 清空队列，持有 mainLock 保证退出线程转移到收件箱的任务不会遗漏
+      if (workStealing) {
+        Runnable task;
+        for (Inbox inbox : inboxes) {
+          while ((task = inbox.poll()) != null) {
+            remainingTasks.add(task);
+          }
+        }
+        for (WorkerThread worker : stealTargets) {
+          while ((task = worker.stealLocal()) != null) {
+            remainingTasks.add(task);
+          }
+        }
+      } else {
+        taskQueue.drainTo(remainingTasks);
+      }
+    } finally {
+      mainLock.unlock();
+    }
+    tryTerminate();
     return remainingTasks;
   }
 
@@ -130,18 +416,41 @@ public class CustomThreadPool {
    */
   public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
     long nanos = unit.toNanos(timeout);
-    for (WorkerThread worker : workers) {
-      if (worker.isAlive()) {
-        long start = System.nanoTime();
-        worker.join(TimeUnit.NANOSECONDS.toMillis(nanos), (int) (nanos % 1000000));
-        long elapsed = System.nanoTime() - start;
-        nanos -= elapsed;
+    mainLock.lock();
+    try {
+      while (!isTerminated()) {
         if (nanos <= 0) {
           return false; // 超时
         }
+        nanos = termination.awaitNanos(nanos);
       }
+      return true;
+    } finally {
+      mainLock.unlock();
     }
-    return true;
+  }
+
+  public boolean isShutdown() {
+    return state >= SHUTDOWN;
+  }
+
+  /**
+   * 已关闭且所有工作线程都已退出
+   */
+  public boolean isTerminated() {
+    mainLock.lock();
+    try {
+      return state >= SHUTDOWN && workers.isEmpty();
+    } finally {
+      mainLock.unlock();
+    }
+  }
+
+  /**
+   * 当前存活的工作线程数
+   */
+  public int getPoolSize() {
+    return workerCount.get();
   }
 
 
@@ -169,75 +478,295 @@ public class CustomThreadPool {
   }
 
 
+  /**
+   * 外部提交任务的收件箱，每个收件箱独立计数，避免所有提交者竞争同一个计数器。计数同时包括以它为
+   * 主收件箱的工作线程本地队列中的任务，所有收件箱的容量之和即整个线程池的排队上限
+   */
+  private static final class Inbox {
+
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int capacity;
+
+    private Inbox(int capacity) {
+      this.capacity = capacity;
+    }
+
+    private boolean offer(Runnable task) {
+      if (!reserve()) {
+        return false;
+      }
+      tasks.offer(task);
+      return true;
+    }
+
+    /**
+     * 占用一个名额，用于放入本地队列的任务
+     */
+    private boolean reserve() {
+      if (size.incrementAndGet() > capacity) {
+        size.decrementAndGet();
+        return false;
+      }
+      return true;
+    }
+
+    private void release() {
+      size.decrementAndGet();
+    }
+
+    /**
+     * 不检查容量直接入队，用于转移退出线程本地队列中已接收的任务
+     */
+    private void forceOffer(Runnable task) {
+      size.incrementAndGet();
+      tasks.offer(task);
+    }
+
+    private Runnable poll() {
+      Runnable task = tasks.poll();
+      if (task != null) {
+        size.decrementAndGet();
+      }
+      return task;
+    }
+  }
+
   /**
    * 工作线程内部类
    */
   private final class WorkerThread extends Thread {
 
+    private final int index;
+
+    /**
+     * 扩容时直接交给新线程的第一个任务
+     */
+    private Runnable firstTask;
+
+    /**
+     * 工作窃取模式下的本地队列：自己从头部存取（后进先出，缓存友好），其他线程从尾部窃取
+     */
+    private final ConcurrentLinkedDeque<Runnable> deque;
+    // 本地队列中的任务计入的收件箱
+    private final Inbox home;
+    private final AtomicBoolean idle = new AtomicBoolean();
+
+    private WorkerThread(int index, Runnable firstTask) {
+      this.index = index;
+      this.firstTask = firstTask;
+      this.deque = workStealing ? new ConcurrentLinkedDeque<>() : null;
+      this.home = workStealing ? inboxes[index & (inboxes.length - 1)] : null;
+    }
+
+    private CustomThreadPool owner() {
+      return CustomThreadPool.this;
+    }
+
+    /**
+     * 退出空闲状态并移出 idleWorkers
+     *
+     * @return 为 false 说明已被提交者唤醒，或本来就不在空闲状态
+     */
+    private boolean leaveIdle() {
+      if (idle.compareAndSet(true, false)) {
+        idleWorkers.remove(this);
+        return true;
+      }
+      return false;
+    }
+
+    private boolean pushLocal(Runnable task) {
+      if (!home.reserve()) {
+        return false;
+      }
+      deque.offerFirst(task);
+      return true;
+    }
+
+    private Runnable popLocal() {
+      Runnable task = deque.pollFirst();
+      if (task != null) {
+        home.release();
+      }
+      return task;
+    }
+
+    private Runnable stealLocal() {
+      Runnable task = deque.pollLast();
+      if (task != null) {
+        home.release();
+      }
+      return task;
+    }
+
     @Override
     public void run() {
+      boolean completedAbruptly = true;
       try {
+        Runnable task = firstTask;
+        firstTask = null;
         // 循环获取任务并执行
-        while (true) {
-          Runnable task = getTask();
-          if (task != null) {
-            try {
-              task.run();
-            } catch (Exception e) {
-              // 任务执行异常，不能影响工作线程的继续运行
-              System.err.println("Task execution failed: " + e.getMessage());
-            }
-          } else {
-            // getTask() 返回 null，表示线程池已关闭且队列为空，线程可以退出了
-            break;
+        while (task != null || (task = getTask()) != null) {
+          try {
+            task.run();
+          } catch (Exception e) {
+            // 任务执行异常，不能影响工作线程的继续运行
+            System.err.println("Task execution failed: " + e.getMessage());
           }
+          task = null;
         }
+        // getTask() 返回 null，表示线程池已关闭或当前线程空闲超时被回收，线程可以退出了
+        completedAbruptly = false;
       } finally {
-        // 线程退出
-        workers.remove(this);
-        // 可以在这里添加逻辑：如果线程是非正常退出（例如任务异常导致），
-        // 且线程池仍在RUNNING，则可以创建一个新线程替换它。
-        // 为简化起见，此处省略。
+        // 线程退出；如果是任务抛出 Error 导致的非正常退出，且线程池仍在 RUNNING，则创建新线程替换它
+        workerExited(this, completedAbruptly);
       }
     }
 
     /**
-     * 从队列中获取任务 这是一个关键方法，它需要处理线程池的各种状态
+     * 从队列中获取任务 这是一个关键方法，它需要处理线程池的各种状态。返回 null 之前已递减 workerCount
      */
     private Runnable getTask() {
-      try {
-        // 循环检查状态，以处理 shutdown() 和 shutdownNow()
-        while (true) {
-          int currentState = state;
-
-          // 状态 >= SHUTDOWN (即 SHUTDOWN 或 STOP)
-          if (currentState >= SHUTDOWN) {
-            // 检查队列是否为空
-            Runnable task = taskQueue.poll();
-            if (task != null) {
-              // SHUTDOWN 状态，继续处理队列中的剩余任务
-              return task;
-            } else {
-              // 队列为空，并且状态是 SHUTDOWN 或 STOP
-              // 线程可以退出了
-              return null;
-            }
+      if (workStealing) {
+        return getStealingTask();
+      }
+      boolean timedOut = false;
+      long idleStart = System.nanoTime();
+      // 循环检查状态，以处理 shutdown() 和 shutdownNow()
+      while (true) {
+        int currentState = state;
+
+        // 状态 = STOP，不再处理队列中的任务
+        if (currentState >= STOP) {
+          workerCount.decrementAndGet();
+          return null;
+        }
+
+        // 状态 = SHUTDOWN
+        if (currentState >= SHUTDOWN) {
+          // 检查队列是否为空
+          Runnable task = taskQueue.poll();
+          if (task != null) {
+            // SHUTDOWN 状态，继续处理队列中的剩余任务
+            return task;
           }
+          // 队列为空，线程可以退出了
+          workerCount.decrementAndGet();
+          return null;
+        }
 
-          // 状态 = RUNNING
-          // 使用 poll(timeout) 代替 take()
-          // 为什么？
-          // 1. 如果用 take()，在 shutdown() 时，线程会永远阻塞在 take()，无法退出。
-          // 2. poll(timeout) 允许线程在一段时间后醒来，重新检查 state 状态。
-          return taskQueue.poll(1, TimeUnit.SECONDS);
+        // 状态 = RUNNING
+        // 线程数超过核心线程数时，空闲超过 keepAliveTime 的线程被回收
+        int count = workerCount.get();
+        boolean timed = count > corePoolSize;
+        if (timed && timedOut) {
+          if (workerCount.compareAndSet(count, count - 1)) {
+            return null;
+          }
+          continue;
+        }
+
+        // 使用 poll(timeout) 代替 take()
+        // 为什么？
+        // 1. 如果用 take()，在 shutdown() 时，线程会永远阻塞在 take()，无法退出。
+        // 2. poll(timeout) 允许线程在一段时间后醒来，重新检查 state 状态。
+        // 可回收的线程同样每次至多等待 POLL_NANOS，累计空闲超过 keepAliveTime 才算超时
+        idleCount.incrementAndGet();
+        try {
+          long waitNanos = timed
+              ? Math.min(POLL_NANOS, keepAliveNanos - (System.nanoTime() - idleStart))
+              : POLL_NANOS;
+          Runnable task = taskQueue.poll(waitNanos, TimeUnit.NANOSECONDS);
+          if (task != null) {
+            return task;
+          }
+          timedOut = timed && System.nanoTime() - idleStart >= keepAliveNanos;
+        } catch (InterruptedException e) {
+          // 发生中断，通常是因为调用了 shutdownNow()，回到循环开头检查状态
+          timedOut = false;
+        } finally {
+          idleCount.decrementAndGet();
+        }
+      }
+    }
 
+    /**
+     * 工作窃取模式下获取任务：本地队列 -> 本线程对应的收件箱 -> 窃取其他线程和收件箱，都没有任务时登记为空闲并挂起，等待提交者唤醒
+     */
+    private Runnable getStealingTask() {
+      boolean timedOut = false;
+      while (true) {
+        if (state >= STOP) {
+          leaveIdle();
+          workerCount.decrementAndGet();
+          return null;
+        }
+        Runnable task = findTask();
+        if (task != null) {
+          leaveIdle();
+          return task;
+        }
+        if (state >= SHUTDOWN) {
+          leaveIdle();
+          workerCount.decrementAndGet();
+          return null;
+        }
+
+        int count = workerCount.get();
+        boolean timed = count > corePoolSize;
+        if (timed && timedOut) {
+          if (workerCount.compareAndSet(count, count - 1)) {
+            return null;
+          }
+          continue;
+        }
+
+        // 先登记空闲再复查一次，保证与提交者之间不会丢失唤醒；挂起超时后仍处于空闲的线程已在队列中，
+        // 不重复入队
+        if (idle.compareAndSet(false, true)) {
+          idleWorkers.offer(this);
+        }
+        task = findTask();
+        if (task != null) {
+          leaveIdle();
+          return task;
+        }
+        if (state >= SHUTDOWN) {
+          continue;
+        }
+        LockSupport.parkNanos(this, timed ? keepAliveNanos : IDLE_PARK_NANOS);
+        // 可回收的线程 idle 仍为 true 说明没有被提交者唤醒，即空闲超时
+        timedOut = timed && leaveIdle();
+        Thread.interrupted();
+      }
+    }
+
+    private Runnable findTask() {
+      Runnable task = popLocal();
+      if (task != null) {
+        return task;
+      }
+      int mask = inboxes.length - 1;
+      task = inboxes[index & mask].poll();
+      if (task != null) {
+        return task;
+      }
+
+      WorkerThread[] targets = stealTargets;
+      int start = ThreadLocalRandom.current().nextInt(Math.max(1, targets.length));
+      for (int i = 0; i < targets.length; i++) {
+        WorkerThread victim = targets[(start + i) % targets.length];
+        if (victim != this && (task = victim.stealLocal()) != null) {
+          return task;
+        }
+      }
+      for (int i = 0; i < inboxes.length; i++) {
+        if ((task = inboxes[(start + i) & mask].poll()) != null) {
+          return task;
         }
-      } catch (InterruptedException e) {
-        // 发生中断，通常是因为调用了 shutdownNow()
-        // 此时应该退出循环，导致线程终止
-        // 返回 null 会让外层 run() 循环的 while(true) 退出
-        return null;
       }
+      return null;
     }
   }
 }
@@ -0,0 +1,75 @@
+package com.ares.concurrency.disruptor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 成批处理事件的 consumer：事件的 payload 先放入缓冲区，在 Disruptor 标记批次结束或缓冲区达到
+ * maxBatchSize 时，整批交给 {@link #bizHandler(List)}，例如一次 JDBC batch 写入一批数据。
+ * <p>
+ * 消费者追上生产者时 Disruptor 总会标记批次结束，缓冲区不会等待后续事件才提交，延迟上限就是处理完
+ * 当前已发布事件的时间；持续高负载时由 maxBatchSize 限制每批的大小和等待。
+ * <p>
+ * 缓冲区在各批次间复用，bizHandler 返回后即被清空，实现方不能持有传入的 List。
+ */
+public abstract class AbstractBatchTaskConsumer<T> extends AbstractTaskConsumer<T> {
+
+  private static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+
+  private final int maxBatchSize;
+  private final List<T> buffer;
+  private final List<T> view;
+
+  protected AbstractBatchTaskConsumer() {
+    this(DEFAULT_MAX_BATCH_SIZE);
+  }
+
+  protected AbstractBatchTaskConsumer(int maxBatchSize) {
+    if (maxBatchSize <= 0) {
+      throw new IllegalArgumentException("Batch size must be positive");
+    }
+    this.maxBatchSize = maxBatchSize;
+    this.buffer = new ArrayList<>(maxBatchSize);
+    this.view = Collections.unmodifiableList(buffer);
+  }
+
+  @Override
+  public void onEvent(TaskEvent<T> event, long sequence, boolean endOfBatch) throws Exception {
+    super.onEvent(event, sequence, endOfBatch);
+    if (endOfBatch || buffer.size() >= maxBatchSize) {
+      flush();
+    }
+  }
+
+  @Override
+  protected void onEndOfBatch() {
+    flush();
+  }
+
+  @Override
+  public void onShutdown() {
+    flush();
+  }
+
+  /**
+   * 单个事件只放入缓冲区，由 {@link #bizHandler(List)} 成批处理
+   */
+  @Override
+  protected final void bizHandler(TaskEvent<T> event) {
+    buffer.add(event.getPayload());
+  }
+
+  protected abstract void bizHandler(List<T> batch);
+
+  private void flush() {
+    if (buffer.isEmpty()) {
+      return;
+    }
+    try {
+      bizHandler(view);
+    } finally {
+      buffer.clear();
+    }
+  }
+}
@@ -8,17 +8,54 @@ public abstract class AbstractTaskConsumer<T> implements EventHandler<TaskEvent<
 
   private final Logger logger = LoggerFactory.getLogger(AbstractTaskConsumer.class);
 
+  // 只由消费线程写，volatile 保证读取指标的线程可见
+  private volatile long batches;
+  private volatile long batchedEvents;
+  private volatile long maxBatchSize;
+
   @Override
   public void onEvent(TaskEvent<T> event, long sequence, boolean endOfBatch) throws Exception {
-    if (event.markAsProcessed()) {
-      logger.info("consumer sequence: {}", sequence);
-      try {
-        bizHandler(event);
-      } catch (Exception e) {
-        throw e;
-      }
+    // 每个事件由哪些 consumer 处理由拓扑决定，不再用 markAsProcessed 去重；start(consumers) 按
+    // 序号分片，每个事件仍只处理一次
+    logger.debug("consumer sequence: {}", sequence);
+    bizHandler(event);
+  }
+
+  /**
+   * 子类覆盖时需调用 super，否则批次指标不再更新
+   */
+  @Override
+  public void onBatchStart(long batchSize, long queueDepth) {
+    batches++;
+    batchedEvents += batchSize;
+    if (batchSize > maxBatchSize) {
+      maxBatchSize = batchSize;
     }
   }
 
+  /**
+   * 按分片消费时，批次的最后一个事件不属于本 consumer 也会调用，供累积数据的 consumer 及时提交
+   */
+  protected void onEndOfBatch() {
+  }
+
   protected abstract void bizHandler(TaskEvent<T> event);
+
+  /**
+   * 从环形队列取到的批次数
+   */
+  public long getBatches() {
+    return batches;
+  }
+
+  /**
+   * 所有批次的事件总数，按分片消费时包括其他分片的事件
+   */
+  public long getBatchedEvents() {
+    return batchedEvents;
+  }
+
+  public long getMaxBatchSize() {
+    return maxBatchSize;
+  }
 }
@@ -0,0 +1,97 @@
+package com.ares.concurrency.disruptor;
+
+import com.lmax.disruptor.AlertException;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.WaitStrategy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 随负载调整的等待策略：先自旋，再 yield，最后挂起等待生产者唤醒。
+ * <p>
+ * 自旋次数是自适应的：在自旋阶段后段才等到事件说明事件来得密集，自旋上限翻倍；一直等到挂起说明
+ * 队列空闲，自旋上限减半。持续高负载时消费者几乎不挂起，交接延迟接近 BusySpin；空闲时很快退化为
+ * 挂起，不会一直占满 CPU。只有存在挂起的消费者时生产者才需要加锁唤醒，发布路径上平时只有一次
+ * 原子读写。
+ * <p>
+ * 等待上游阶段（而不是生产者）时没有唤醒通知，自旋和 yield 之后按 {@link #DEPENDENT_PARK_NANOS}
+ * 周期轮询。
+ */
+public class AdaptiveWaitStrategy implements WaitStrategy {
+
+  private static final int MIN_SPINS = 1 << 6;
+  private static final int MAX_SPINS = 1 << 14;
+  private static final int YIELDS = 1 << 4;
+  // 挂起时的最长等待，防止极端情况下错过唤醒
+  private static final long PARK_TIMEOUT_MILLIS = 10;
+  private static final long DEPENDENT_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+  private final Object mutex = new Object();
+  private final AtomicBoolean signalNeeded = new AtomicBoolean();
+  // 多个消费者共享，非原子的读改写只会让调整略有偏差
+  private volatile int spinLimit = MIN_SPINS;
+
+  @Override
+  public long waitFor(long sequence, Sequence cursor, Sequence dependentSequence,
+      SequenceBarrier barrier) throws AlertException, InterruptedException {
+    long available;
+    int spins = spinLimit;
+    for (int i = 0; i < spins; i++) {
+      if ((available = dependentSequence.get()) >= sequence) {
+        if (i > spins >> 1 && spins < MAX_SPINS) {
+          spinLimit = spins << 1;
+        }
+        return available;
+      }
+      barrier.checkAlert();
+      Thread.onSpinWait();
+    }
+    for (int i = 0; i < YIELDS; i++) {
+      if ((available = dependentSequence.get()) >= sequence) {
+        return available;
+      }
+      barrier.checkAlert();
+      Thread.yield();
+    }
+
+    if (cursor.get() < sequence) {
+      if (spins > MIN_SPINS) {
+        spinLimit = spins >> 1;
+      }
+      synchronized (mutex) {
+        while (cursor.get() < sequence) {
+          signalNeeded.set(true);
+          if (cursor.get() >= sequence) {
+            break;
+          }
+          barrier.checkAlert();
+          mutex.wait(PARK_TIMEOUT_MILLIS);
+        }
+      }
+    }
+
+    int rounds = 0;
+    while ((available = dependentSequence.get()) < sequence) {
+      barrier.checkAlert();
+      if (++rounds < MIN_SPINS) {
+        Thread.onSpinWait();
+      } else if (rounds < MIN_SPINS + YIELDS) {
+        Thread.yield();
+      } else {
+        LockSupport.parkNanos(DEPENDENT_PARK_NANOS);
+      }
+    }
+    return available;
+  }
+
+  @Override
+  public void signalAllWhenBlocking() {
+    if (signalNeeded.getAndSet(false)) {
+      synchronized (mutex) {
+        mutex.notifyAll();
+      }
+    }
+  }
+}
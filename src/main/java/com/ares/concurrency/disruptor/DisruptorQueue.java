@@ -1,31 +1,49 @@
 package com.ares.concurrency.disruptor;
 
 import com.ares.concurrency.DefaultThreadFactory;
-import com.lmax.disruptor.BlockingWaitStrategy;
+import com.ares.concurrency.disruptor.RingMetrics.ConsumerMetrics;
+import com.ares.concurrency.threadpool.LatencyHistogram;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.TimeoutException;
 import com.lmax.disruptor.WaitStrategy;
 import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.EventHandlerGroup;
 import com.lmax.disruptor.dsl.ProducerType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * 默认使用 AdaptiveWaitStrategy：负载持续时消费者自旋等待，空闲时挂起。
+ * 运行状态见 {@link #metrics()}
+ */
 public class DisruptorQueue<T> {
 
   public static final Integer DEFAULT_BUFFER_SIZE = 4096 << 1 << 1;
 
   private final Disruptor<TaskEvent<T>> disruptor;
+  private final LatencyHistogram producerWait = new LatencyHistogram();
+  private final List<Registration<T>> registrations = new CopyOnWriteArrayList<>();
+
+  private record Registration<T>(String name, EventHandler<TaskEvent<T>> handler,
+                                 AbstractTaskConsumer<T> consumer) {
+
+  }
 
   public DisruptorQueue() {
     this(DEFAULT_BUFFER_SIZE);
   }
 
   public DisruptorQueue(int bufferSize) {
-    this(bufferSize, ProducerType.SINGLE, new BlockingWaitStrategy(),
+    this(bufferSize, ProducerType.SINGLE, new AdaptiveWaitStrategy(),
         new DefaultThreadFactory("default-disruptor"));
   }
 
   public DisruptorQueue(int bufferSize, ThreadFactory threadFactory) {
-    this(bufferSize, ProducerType.SINGLE, new BlockingWaitStrategy(), threadFactory);
+    this(bufferSize, ProducerType.SINGLE, new AdaptiveWaitStrategy(), threadFactory);
   }
 
   public DisruptorQueue(int bufferSize, ProducerType producerType, WaitStrategy waitStrategy,
@@ -39,9 +57,83 @@ public class DisruptorQueue<T> {
         waitStrategy);
   }
 
+  /**
+   * 多个 consumer 分担事件，每个事件只由其中一个处理，等同于 {@link #handleWithWorkerPool} 后
+   * {@link #start()}。需要每个 consumer 都处理每个事件时使用 {@link #handleWith}
+   */
   @SafeVarargs
   public final void start(AbstractTaskConsumer<T>... consumer) {
-    disruptor.handleEventsWith(consumer);
+    List<AbstractTaskConsumer<T>> list = new ArrayList<>(consumer.length);
+    for (AbstractTaskConsumer<T> worker : consumer) {
+      list.add(worker);
+    }
+    disruptor.handleEventsWith(registerSharded(list));
+    disruptor.start();
+  }
+
+  /**
+   * 从环形队列直接消费的阶段，每个 consumer 都处理每个事件
+   */
+  @SafeVarargs
+  public final Stage<T> handleWith(AbstractTaskConsumer<T>... consumers) {
+    List<AbstractTaskConsumer<T>> list = new ArrayList<>(consumers.length);
+    for (AbstractTaskConsumer<T> consumer : consumers) {
+      list.add(consumer);
+    }
+    return new Stage<>(this, disruptor.handleEventsWith(register(list)));
+  }
+
+  /**
+   * 从环形队列直接消费的阶段，每个事件只由 workers 中的一个处理
+   */
+  @SafeVarargs
+  public final Stage<T> handleWithWorkerPool(AbstractTaskConsumer<T>... workers) {
+    List<AbstractTaskConsumer<T>> list = new ArrayList<>(workers.length);
+    for (AbstractTaskConsumer<T> worker : workers) {
+      list.add(worker);
+    }
+    return new Stage<>(this, disruptor.handleEventsWith(registerSharded(list)));
+  }
+
+  EventHandlerGroup<TaskEvent<T>> then(EventHandlerGroup<TaskEvent<T>> group,
+      List<AbstractTaskConsumer<T>> consumers) {
+    return group.then(register(consumers));
+  }
+
+  EventHandlerGroup<TaskEvent<T>> thenWorkerPool(EventHandlerGroup<TaskEvent<T>> group,
+      List<AbstractTaskConsumer<T>> workers) {
+    return group.then(registerSharded(workers));
+  }
+
+  // 可变参数逐个复制，交给 Disruptor 的是新建的数组，调用方的数组不会逃逸
+  private EventHandler<TaskEvent<T>>[] register(List<AbstractTaskConsumer<T>> consumers) {
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    EventHandler<TaskEvent<T>>[] handlers = new EventHandler[consumers.size()];
+    for (int i = 0; i < handlers.length; i++) {
+      handlers[i] = consumers.get(i);
+      register(handlers[i], consumers.get(i));
+    }
+    return handlers;
+  }
+
+  private EventHandler<TaskEvent<T>>[] registerSharded(List<AbstractTaskConsumer<T>> workers) {
+    EventHandler<TaskEvent<T>>[] handlers = ShardedHandler.shard(workers);
+    for (int i = 0; i < handlers.length; i++) {
+      register(handlers[i], workers.get(i));
+    }
+    return handlers;
+  }
+
+  private void register(EventHandler<TaskEvent<T>> handler, AbstractTaskConsumer<T> consumer) {
+    Class<?> type = consumer.getClass();
+    String name = type.getSimpleName().isEmpty() ? type.getName() : type.getSimpleName();
+    registrations.add(new Registration<>(name + "-" + registrations.size(), handler, consumer));
+  }
+
+  /**
+   * 通过 handleWith 等方法组装好拓扑后启动
+   */
+  public void start() {
     disruptor.start();
   }
 
@@ -49,6 +141,31 @@ public class DisruptorQueue<T> {
     return this.disruptor;
   }
 
+  /**
+   * 生产者遇到队列已满时的等待耗时，由 TaskProducer 记录
+   */
+  public LatencyHistogram getProducerWaitHistogram() {
+    return producerWait;
+  }
+
+  /**
+   * 环形队列和各 consumer 的当前状态，lag 等于 cursor 减去该 consumer 已处理到的序号
+   */
+  public RingMetrics metrics() {
+    RingBuffer<TaskEvent<T>> ringBuffer = disruptor.getRingBuffer();
+    long cursor = ringBuffer.getCursor();
+    List<ConsumerMetrics> consumers = new ArrayList<>(registrations.size());
+    for (Registration<T> registration : registrations) {
+      long sequence = disruptor.getSequenceValueFor(registration.handler());
+      AbstractTaskConsumer<T> consumer = registration.consumer();
+      consumers.add(new ConsumerMetrics(registration.name(), sequence,
+          Math.max(0, cursor - sequence), consumer.getBatches(), consumer.getBatchedEvents(),
+          consumer.getMaxBatchSize()));
+    }
+    return new RingMetrics(ringBuffer.getBufferSize(), ringBuffer.remainingCapacity(), cursor,
+        producerWait.snapshot(), consumers);
+  }
+
   public void shutdown() throws TimeoutException {
     disruptor.shutdown(5, TimeUnit.SECONDS);
   }
@@ -0,0 +1,27 @@
+package com.ares.concurrency.disruptor;
+
+import com.ares.concurrency.threadpool.LatencyHistogram;
+import java.util.List;
+
+/**
+ * DisruptorQueue 的运行状态快照
+ *
+ * @param remainingCapacity 环形队列剩余容量
+ * @param producerWait      生产者遇到队列已满时等待空位的耗时（纳秒），count 即队列满的次数
+ * @param consumers         按注册顺序排列的各 consumer 状态
+ */
+public record RingMetrics(int bufferSize, long remainingCapacity, long cursor,
+                          LatencyHistogram.Snapshot producerWait,
+                          List<ConsumerMetrics> consumers) {
+
+  /**
+   * @param lag 已发布但该 consumer 尚未处理完的事件数
+   */
+  public record ConsumerMetrics(String name, long sequence, long lag, long batches,
+                                long batchedEvents, long maxBatchSize) {
+
+    public double meanBatchSize() {
+      return batches == 0 ? 0 : (double) batchedEvents / batches;
+    }
+  }
+}
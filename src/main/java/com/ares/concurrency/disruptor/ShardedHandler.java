@@ -0,0 +1,65 @@
+package com.ares.concurrency.disruptor;
+
+import com.lmax.disruptor.EventHandler;
+import java.util.List;
+
+/**
+ * Disruptor 4 去掉了 WorkerPool，这里按序号取模把事件分给一组 handler：每个 handler 只处理
+ * {@code sequence % count == index} 的事件，每个事件只被处理一次，且不需要 CAS 去重。
+ * <p>
+ * 分片是固定的，某个 handler 处理慢时只会阻塞自己分片上的后续事件，直到环形队列被填满。
+ */
+class ShardedHandler<T> implements EventHandler<TaskEvent<T>> {
+
+  private final AbstractTaskConsumer<T> delegate;
+  private final int index;
+  private final int count;
+
+  ShardedHandler(AbstractTaskConsumer<T> delegate, int index, int count) {
+    this.delegate = delegate;
+    this.index = index;
+    this.count = count;
+  }
+
+  static <T> EventHandler<TaskEvent<T>>[] shard(List<AbstractTaskConsumer<T>> workers) {
+    if (workers.isEmpty()) {
+      throw new IllegalArgumentException("Worker pool cannot be empty");
+    }
+    // 泛型数组只能以原始类型创建，只装 ShardedHandler<T>，转换是安全的
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    EventHandler<TaskEvent<T>>[] handlers = new EventHandler[workers.size()];
+    for (int i = 0; i < handlers.length; i++) {
+      handlers[i] = new ShardedHandler<>(workers.get(i), i, handlers.length);
+    }
+    return handlers;
+  }
+
+  @Override
+  public void onEvent(TaskEvent<T> event, long sequence, boolean endOfBatch) throws Exception {
+    if (sequence % count == index) {
+      delegate.onEvent(event, sequence, endOfBatch);
+    } else if (endOfBatch) {
+      delegate.onEndOfBatch();
+    }
+  }
+
+  @Override
+  public void onBatchStart(long batchSize, long queueDepth) {
+    delegate.onBatchStart(batchSize, queueDepth);
+  }
+
+  @Override
+  public void onStart() {
+    delegate.onStart();
+  }
+
+  @Override
+  public void onShutdown() {
+    delegate.onShutdown();
+  }
+
+  @Override
+  public void onTimeout(long sequence) throws Exception {
+    delegate.onTimeout(sequence);
+  }
+}
@@ -0,0 +1,57 @@
+package com.ares.concurrency.disruptor;
+
+import com.lmax.disruptor.dsl.EventHandlerGroup;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DisruptorQueue 上的一个处理阶段，用于组装消费拓扑：
+ * <pre>
+ * Stage&lt;T&gt; decode = queue.handleWith(decoder);
+ * decode.thenWorkerPool(enrichers).then(persister);
+ *
+ * // 菱形：a、b 并行处理同一事件，c 在两者都处理完后执行
+ * queue.handleWith(a).and(queue.handleWith(b)).then(c);
+ * </pre>
+ */
+public class Stage<T> {
+
+  private final DisruptorQueue<T> queue;
+  private final EventHandlerGroup<TaskEvent<T>> group;
+
+  Stage(DisruptorQueue<T> queue, EventHandlerGroup<TaskEvent<T>> group) {
+    this.queue = queue;
+    this.group = group;
+  }
+
+  /**
+   * 本阶段之后的阶段，每个 consumer 都处理每个事件
+   */
+  @SafeVarargs
+  public final Stage<T> then(AbstractTaskConsumer<T>... consumers) {
+    List<AbstractTaskConsumer<T>> list = new ArrayList<>(consumers.length);
+    for (AbstractTaskConsumer<T> consumer : consumers) {
+      list.add(consumer);
+    }
+    return new Stage<>(queue, queue.then(group, list));
+  }
+
+  /**
+   * 本阶段之后的阶段，每个事件只由 workers 中的一个处理
+   */
+  @SafeVarargs
+  public final Stage<T> thenWorkerPool(AbstractTaskConsumer<T>... workers) {
+    List<AbstractTaskConsumer<T>> list = new ArrayList<>(workers.length);
+    for (AbstractTaskConsumer<T> worker : workers) {
+      list.add(worker);
+    }
+    return new Stage<>(queue, queue.thenWorkerPool(group, list));
+  }
+
+  /**
+   * 合并两个阶段，之后的阶段要等两者都处理完同一事件
+   */
+  public Stage<T> and(Stage<T> other) {
+    return new Stage<>(queue, group.and(other.group));
+  }
+}
@@ -16,6 +16,19 @@ public class TaskEvent<T> {
     this.payload = payload;
   }
 
+  /**
+   * 生产者复用预分配事件时写入新数据，同时清除上一轮的处理标记
+   */
+  public void set(long taskId, T payload) {
+    this.taskId = taskId;
+    this.payload = payload;
+    processed.lazySet(false);
+  }
+
+  /**
+   * @deprecated 去重由 DisruptorQueue 的拓扑保证，见 {@link DisruptorQueue#handleWithWorkerPool}
+   */
+  @Deprecated
   public boolean markAsProcessed() {
     return processed.compareAndSet(false, true);
   }
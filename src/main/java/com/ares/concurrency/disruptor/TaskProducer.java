@@ -1,24 +1,179 @@
 package com.ares.concurrency.disruptor;
 
+import com.ares.concurrency.threadpool.LatencyHistogram;
+import com.lmax.disruptor.EventTranslator;
+import com.lmax.disruptor.EventTranslatorOneArg;
+import com.lmax.disruptor.EventTranslatorThreeArg;
+import com.lmax.disruptor.EventTranslatorTwoArg;
+import com.lmax.disruptor.InsufficientCapacityException;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.dsl.Disruptor;
+import java.util.List;
+import java.util.function.ToLongFunction;
 
+/**
+ * 向 DisruptorQueue 发布事件，数据直接写入环形队列中预分配的 TaskEvent，不再创建中间事件对象。
+ * <p>
+ * 多个线程同时发布时，DisruptorQueue 需要以 ProducerType.MULTI 创建。队列已满时阻塞等待空位的耗时
+ * 记入 DisruptorQueue 的 producerWait 直方图。
+ */
 public class TaskProducer<T> {
+
   private final RingBuffer<TaskEvent<T>> ringBuffer;
+  private final LatencyHistogram producerWait;
 
   public TaskProducer(DisruptorQueue<T> queue) {
     Disruptor<TaskEvent<T>> disruptor = queue.getDisruptor();
     this.ringBuffer = disruptor.getRingBuffer();
+    this.producerWait = queue.getProducerWaitHistogram();
   }
 
+  /**
+   * 复制 {@code event} 的内容发布，保留给已有调用方；新代码使用 {@link #publish(long, Object)}
+   */
   public void push(TaskEvent<T> event) {
-    long sequence = ringBuffer.next();
+    publish(event.getTaskId(), event.getPayload());
+  }
+
+  public void publish(long taskId, T payload) {
+    long sequence = next(1);
+    try {
+      ringBuffer.get(sequence).set(taskId, payload);
+    } finally {
+      ringBuffer.publish(sequence);
+    }
+  }
+
+  public void publish(EventTranslator<TaskEvent<T>> translator) {
+    long sequence = next(1);
+    try {
+      translator.translateTo(ringBuffer.get(sequence), sequence);
+    } finally {
+      ringBuffer.publish(sequence);
+    }
+  }
+
+  public <A> void publish(EventTranslatorOneArg<TaskEvent<T>, A> translator, A arg0) {
+    long sequence = next(1);
+    try {
+      translator.translateTo(ringBuffer.get(sequence), sequence, arg0);
+    } finally {
+      ringBuffer.publish(sequence);
+    }
+  }
+
+  public <A, B> void publish(EventTranslatorTwoArg<TaskEvent<T>, A, B> translator, A arg0,
+      B arg1) {
+    long sequence = next(1);
+    try {
+      translator.translateTo(ringBuffer.get(sequence), sequence, arg0, arg1);
+    } finally {
+      ringBuffer.publish(sequence);
+    }
+  }
+
+  public <A, B, C> void publish(EventTranslatorThreeArg<TaskEvent<T>, A, B, C> translator,
+      A arg0, B arg1, C arg2) {
+    long sequence = next(1);
+    try {
+      translator.translateTo(ringBuffer.get(sequence), sequence, arg0, arg1, arg2);
+    } finally {
+      ringBuffer.publish(sequence);
+    }
+  }
+
+  /**
+   * 批量发布，每批只申请一次序号；超过队列容量时按容量分批
+   */
+  public void publishAll(List<? extends T> payloads, ToLongFunction<? super T> taskIdOf) {
+    int bufferSize = ringBuffer.getBufferSize();
+    int offset = 0;
+    while (offset < payloads.size()) {
+      int n = Math.min(bufferSize, payloads.size() - offset);
+      long hi = next(n);
+      long lo = hi - n + 1;
+      try {
+        for (long sequence = lo; sequence <= hi; sequence++) {
+          T payload = payloads.get(offset + (int) (sequence - lo));
+          ringBuffer.get(sequence).set(taskIdOf.applyAsLong(payload), payload);
+        }
+      } finally {
+        ringBuffer.publish(lo, hi);
+      }
+      offset += n;
+    }
+  }
+
+  public <A> void publishAll(EventTranslatorOneArg<TaskEvent<T>, A> translator, A[] args) {
+    publishAll(translator, 0, args.length, args);
+  }
+
+  /**
+   * 用 {@code translator} 发布 {@code args[offset, offset + length)}，length 不能超过队列容量
+   */
+  public <A> void publishAll(EventTranslatorOneArg<TaskEvent<T>, A> translator, int offset,
+      int length, A[] args) {
+    if (length <= 0) {
+      return;
+    }
+    if (offset < 0 || offset + length > args.length) {
+      throw new IllegalArgumentException("Invalid offset/length for " + args.length + " args");
+    }
+    long hi = next(length);
+    long lo = hi - length + 1;
+    try {
+      for (long sequence = lo; sequence <= hi; sequence++) {
+        translator.translateTo(ringBuffer.get(sequence), sequence,
+            args[offset + (int) (sequence - lo)]);
+      }
+    } finally {
+      ringBuffer.publish(lo, hi);
+    }
+  }
+
+  /**
+   * 队列已满时立即返回 false，不等待消费者
+   */
+  public boolean tryPublish(long taskId, T payload) {
+    long sequence;
     try {
-      TaskEvent<T> taskEvent = ringBuffer.get(sequence);
-      taskEvent.setTaskId(event.getTaskId());
-      taskEvent.setPayload(event.getPayload());
+      sequence = ringBuffer.tryNext();
+    } catch (InsufficientCapacityException e) {
+      return false;
+    }
+    try {
+      ringBuffer.get(sequence).set(taskId, payload);
     } finally {
       ringBuffer.publish(sequence);
     }
+    return true;
+  }
+
+  public <A> boolean tryPublish(EventTranslatorOneArg<TaskEvent<T>, A> translator, A arg0) {
+    return ringBuffer.tryPublishEvent(translator, arg0);
+  }
+
+  /**
+   * 一次性申请 {@code args.length} 个序号，容量不足时整批放弃
+   */
+  public <A> boolean tryPublishAll(EventTranslatorOneArg<TaskEvent<T>, A> translator, A[] args) {
+    return args.length == 0 || ringBuffer.tryPublishEvents(translator, args);
+  }
+
+  public long remainingCapacity() {
+    return ringBuffer.remainingCapacity();
+  }
+
+  /**
+   * 申请 n 个序号，只有队列空位不足、需要等待消费者时才计时
+   */
+  private long next(int n) {
+    if (ringBuffer.hasAvailableCapacity(n)) {
+      return ringBuffer.next(n);
+    }
+    long start = System.nanoTime();
+    long sequence = ringBuffer.next(n);
+    producerWait.record(System.nanoTime() - start);
+    return sequence;
   }
 }
@@ -1,7 +1,6 @@
 package com.ares.concurrency.disruptor.example;
 
 import com.ares.concurrency.disruptor.DisruptorQueue;
-import com.ares.concurrency.disruptor.TaskEvent;
 import com.ares.concurrency.disruptor.TaskProducer;
 import java.time.Instant;
 import org.slf4j.Logger;
@@ -19,16 +18,14 @@ public class Example {
     for (int i = 0; i < 4; i++) {
       consumers[i] = new BizTaskConsumer();
     }
-    queue.start(consumers);
+    queue.handleWithWorkerPool(consumers);
+    queue.start();
 
     TaskProducer<User> producer = new TaskProducer<>(queue);
     for (long i = 0; i < 10L; i++) {
       MDC.put("traceId", String.valueOf(i));
       logger.info("id: {}", i);
-      TaskEvent<User> taskEvent = new TaskEvent<>();
-      taskEvent.setTaskId(Instant.now().toEpochMilli());
-      taskEvent.setPayload(new User(i, "ares"));
-      producer.push(taskEvent);
+      producer.publish(Instant.now().toEpochMilli(), new User(i, "ares"));
     }
 
     queue.shutdown();
@@ -1,29 +1,31 @@
 package com.ares.concurrency.forkjoin;
 
-import java.util.Map;
+import com.ares.concurrency.mdc.MdcSnapshot;
 import java.util.concurrent.RecursiveTask;
-import org.slf4j.MDC;
 
+/**
+ * 创建时捕获 MDC 快照，compute 时安装到工作线程；子任务可以通过
+ * {@link #AbstractForkJoinTask(AbstractForkJoinTask)} 沿用父任务的快照而不重新捕获
+ */
 public abstract class AbstractForkJoinTask<T> extends RecursiveTask<T> {
 
-  private final ThreadLocal<Map<String, String>> mdcCache = new ThreadLocal<>();
+  private final MdcSnapshot context;
+
+  protected AbstractForkJoinTask() {
+    this.context = MdcSnapshot.capture();
+  }
+
+  protected AbstractForkJoinTask(AbstractForkJoinTask<?> parent) {
+    this.context = parent.context;
+  }
 
   @Override
   protected final T compute() {
-    Map<String, String> oldMdc = MDC.getCopyOfContextMap();
+    MdcSnapshot previous = context.attach();
     try {
-      if (oldMdc != null) {
-        oldMdc = MDC.getCopyOfContextMap();
-        mdcCache.set(oldMdc);
-      }
       return computeWithMdc();
     } finally {
-      if (oldMdc != null) {
-        MDC.setContextMap(oldMdc);
-      } else {
-        MDC.clear();
-      }
-      mdcCache.remove();
+      context.detach(previous);
     }
   }
 
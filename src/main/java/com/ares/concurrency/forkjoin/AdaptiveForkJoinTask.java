@@ -0,0 +1,81 @@
+package com.ares.concurrency.forkjoin;
+
+import com.ares.concurrency.mdc.MdcSnapshot;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 自适应拆分的分治任务基类。
+ * <p>
+ * 是否继续拆分不再依赖固定阈值：当前工作线程队列里积压的任务（getSurplusQueuedTaskCount）
+ * 超过 {@link #SURPLUS_THRESHOLD} 时说明其他线程已经有活可偷，继续拆分只会增加开销，直接顺序计算；
+ * 同时剩余规模不超过 leafSize 时也不再拆分。leafSize 通常取输入规模 / (并行度 * 4)，见
+ * {@link #leafSize(long, int)}。
+ * <p>
+ * MDC 快照只在根任务创建时捕获一次，子任务共享同一个快照，只有在任务被其他线程偷走执行时才安装，
+ * 同一线程上嵌套执行的子任务不再重复安装。
+ */
+public abstract class AdaptiveForkJoinTask<R> extends RecursiveTask<R> {
+
+  public static final int SURPLUS_THRESHOLD = 3;
+
+  // 当前线程已安装的任务上下文
+  private static final ThreadLocal<MdcSnapshot> INSTALLED = new ThreadLocal<>();
+
+  private final MdcSnapshot context;
+
+  /**
+   * 根任务，捕获调用线程的 MDC
+   */
+  protected AdaptiveForkJoinTask() {
+    this.context = MdcSnapshot.capture();
+  }
+
+  /**
+   * 子任务，沿用父任务的 MDC
+   */
+  protected AdaptiveForkJoinTask(AdaptiveForkJoinTask<?> parent) {
+    this.context = parent.context;
+  }
+
+  @Override
+  protected final R compute() {
+    MdcSnapshot previous = INSTALLED.get();
+    if (previous == context) {
+      return computeTask();
+    }
+    // 工作线程上第一次执行本请求的任务
+    MdcSnapshot original = context.attach();
+    INSTALLED.set(context);
+    try {
+      return computeTask();
+    } finally {
+      context.detach(original);
+      if (previous == null) {
+        INSTALLED.remove();
+      } else {
+        INSTALLED.set(previous);
+      }
+    }
+  }
+
+  protected abstract R computeTask();
+
+  /**
+   * 剩余规模大于 leafSize 且当前线程积压的任务不多时继续拆分
+   */
+  protected static boolean shouldSplit(long size, long leafSize) {
+    return size > leafSize && ForkJoinTask.getSurplusQueuedTaskCount() <= SURPLUS_THRESHOLD;
+  }
+
+  /**
+   * 叶子任务的规模下限：输入规模 / (并行度 * 4)，且不小于 minLeafSize
+   */
+  public static long leafSize(long size, int parallelism, long minLeafSize) {
+    return Math.max(size / ((long) Math.max(parallelism, 1) << 2), Math.max(minLeafSize, 1));
+  }
+
+  public static long leafSize(long size, int parallelism) {
+    return leafSize(size, parallelism, 1);
+  }
+}
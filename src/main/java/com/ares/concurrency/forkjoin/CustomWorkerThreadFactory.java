@@ -1,6 +1,6 @@
 package com.ares.concurrency.forkjoin;
 
-import java.util.Map;
+import com.ares.concurrency.mdc.MdcSnapshot;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
 import java.util.concurrent.ForkJoinWorkerThread;
@@ -13,11 +13,11 @@ public class CustomWorkerThreadFactory implements ForkJoinWorkerThreadFactory {
   private static final AtomicInteger poolNumber = new AtomicInteger(1);
   private final AtomicInteger threadNumber = new AtomicInteger(1);
 
-  protected final Map<String, String> inheritedMdc;
+  protected final MdcSnapshot inheritedMdc;
 
   public CustomWorkerThreadFactory(String namePrefix) {
     this.namePrefix = namePrefix + "-" + poolNumber.getAndIncrement() + "-worker-";
-    this.inheritedMdc = MDC.getCopyOfContextMap();
+    this.inheritedMdc = MdcSnapshot.capture();
   }
 
   @Override
@@ -37,17 +37,16 @@ public class CustomWorkerThreadFactory implements ForkJoinWorkerThreadFactory {
     protected void onStart() {
       super.onStart();
       // 在线程启动时复制 MDC 上下文
-      if (inheritedMdc != null) {
-        MDC.setContextMap(inheritedMdc);
+      if (!inheritedMdc.isEmpty()) {
+        MDC.setContextMap(inheritedMdc.getContext());
       }
     }
 
     @Override
     protected void onTermination(Throwable exception) {
       try {
-        // 在线程结束时清理 MDC 上下文
+        // 在线程结束时清理 MDC 上下文，快照由所有工作线程共享，不能清空
         MDC.clear();
-        inheritedMdc.clear();
       } finally {
         super.onTermination(exception);
       }
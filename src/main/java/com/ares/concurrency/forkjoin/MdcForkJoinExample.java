@@ -46,8 +46,8 @@ public class MdcForkJoinExample {
       // 记录日志，会包含 MDC 信息
       logger.info("Executing task in thread");
 
-      // 创建子任务
-      SubTask subTask = new SubTask();
+      // 创建子任务，沿用本任务的 MDC 快照
+      SubTask subTask = new SubTask(this);
       subTask.fork();
 
       // 等待子任务完成并合并结果
@@ -58,6 +58,10 @@ public class MdcForkJoinExample {
 
   public static class SubTask extends AbstractForkJoinTask<String> {
 
+    public SubTask(AbstractForkJoinTask<?> parent) {
+      super(parent);
+    }
+
     @Override
     protected String computeWithMdc() {
       // 子任务中的日志也会包含 MDC 信息
@@ -0,0 +1,126 @@
+package com.ares.concurrency.forkjoin;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * 在 ForkJoinPool 上并行 map/reduce 数组、List 和 Spliterator，拆分粒度由 AdaptiveForkJoinTask
+ * 按输入规模和线程积压情况自动决定，不需要为每种负载调阈值。
+ * <pre>
+ * ParallelMapReduce parallel = new ParallelMapReduce(new DefaultForkJoinPool());
+ * long total = parallel.mapReduce(orders, Order::getAmount, 0L, Long::sum);
+ * List&lt;Dto&gt; dtos = parallel.map(entities, Dto::from);
+ * </pre>
+ * reducer 需满足结合律，结果按输入顺序合并；identity 会在每个叶子任务中使用，必须是单位元。
+ * 调用线程的 MDC 会传递给所有子任务。
+ */
+public class ParallelMapReduce {
+
+  private final ForkJoinPool pool;
+  private final long minLeafSize;
+
+  public ParallelMapReduce(ForkJoinPool pool) {
+    this(pool, 1);
+  }
+
+  /**
+   * @param minLeafSize 叶子任务的最小规模，单个元素的计算极轻时可调大以减少拆分开销
+   */
+  public ParallelMapReduce(ForkJoinPool pool, long minLeafSize) {
+    if (minLeafSize <= 0) {
+      throw new IllegalArgumentException("Min leaf size must be positive");
+    }
+    this.pool = pool;
+    this.minLeafSize = minLeafSize;
+  }
+
+  public <T, R> R mapReduce(T[] array, Function<? super T, ? extends R> mapper, R identity,
+      BinaryOperator<R> reducer) {
+    return invoke(array.length, (lo, hi) -> {
+      R result = identity;
+      for (int i = lo; i < hi; i++) {
+        result = reducer.apply(result, mapper.apply(array[i]));
+      }
+      return result;
+    }, reducer, identity);
+  }
+
+  public <T, R> R mapReduce(List<? extends T> list, Function<? super T, ? extends R> mapper,
+      R identity, BinaryOperator<R> reducer) {
+    if (!(list instanceof RandomAccess)) {
+      return mapReduce(list.spliterator(), mapper, identity, reducer);
+    }
+    return invoke(list.size(), (lo, hi) -> {
+      R result = identity;
+      for (int i = lo; i < hi; i++) {
+        result = reducer.apply(result, mapper.apply(list.get(i)));
+      }
+      return result;
+    }, reducer, identity);
+  }
+
+  /**
+   * spliterator 的拆分能力决定并行度，大小未知时只按线程积压情况拆分
+   */
+  public <T, R> R mapReduce(Spliterator<? extends T> spliterator,
+      Function<? super T, ? extends R> mapper, R identity, BinaryOperator<R> reducer) {
+    @SuppressWarnings("unchecked")
+    Spliterator<T> source = (Spliterator<T>) spliterator;
+    long size = source.estimateSize();
+    long leafSize = size == Long.MAX_VALUE ? minLeafSize
+        : AdaptiveForkJoinTask.leafSize(size, pool.getParallelism(), minLeafSize);
+    return pool.invoke(new SpliteratorTask<>(source, leafSize, mapper, identity, reducer));
+  }
+
+  public <T, R> R[] map(T[] array, Function<? super T, ? extends R> mapper,
+      IntFunction<R[]> generator) {
+    R[] result = generator.apply(array.length);
+    invoke(array.length, (lo, hi) -> {
+      for (int i = lo; i < hi; i++) {
+        result[i] = mapper.apply(array[i]);
+      }
+      return null;
+    }, (left, right) -> null, null);
+    return result;
+  }
+
+  /**
+   * 返回的 List 与输入顺序一致，不可修改
+   */
+  @SuppressWarnings("unchecked")
+  public <T, R> List<R> map(List<? extends T> list, Function<? super T, ? extends R> mapper) {
+    Object[] source = list instanceof RandomAccess ? null : list.toArray();
+    Object[] result = new Object[list.size()];
+    invoke(result.length, (lo, hi) -> {
+      for (int i = lo; i < hi; i++) {
+        result[i] = mapper.apply(source != null ? (T) source[i] : list.get(i));
+      }
+      return null;
+    }, (left, right) -> null, null);
+    return Collections.unmodifiableList(Arrays.asList((R[]) result));
+  }
+
+  public <T> void forEach(List<? extends T> list, Consumer<? super T> action) {
+    mapReduce(list, t -> {
+      action.accept(t);
+      return null;
+    }, null, (left, right) -> null);
+  }
+
+  private <R> R invoke(int size, RangeTask.Leaf<R> leaf, BinaryOperator<R> combiner,
+      R identity) {
+    if (size == 0) {
+      return identity;
+    }
+    long leafSize = AdaptiveForkJoinTask.leafSize(size, pool.getParallelism(), minLeafSize);
+    return pool.invoke(new RangeTask<>(0, size, leafSize, leaf, combiner));
+  }
+}
@@ -0,0 +1,37 @@
+package com.ares.concurrency.forkjoin;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+public class ParallelMapReduceExample {
+
+  private static final Logger logger = LoggerFactory.getLogger(ParallelMapReduceExample.class);
+
+  public static void main(String[] args) {
+    MDC.put("traceId", String.valueOf(Instant.now().toEpochMilli()));
+    DefaultForkJoinPool pool = new DefaultForkJoinPool();
+    try {
+      ParallelMapReduce parallel = new ParallelMapReduce(pool);
+      List<Integer> numbers = IntStream.rangeClosed(1, 1_000_000).boxed()
+          .collect(Collectors.toList());
+
+      // 不需要指定拆分阈值
+      long sumOfSquares = parallel.mapReduce(numbers, n -> (long) n * n, 0L, Long::sum);
+      logger.info("sum of squares: {}", sumOfSquares);
+
+      List<String> hex = parallel.map(numbers.subList(0, 16), Integer::toHexString);
+      logger.info("hex: {}", hex);
+
+      // 子任务中的日志同样带有 traceId
+      parallel.forEach(numbers.subList(0, 4), n -> logger.info("visit {}", n));
+    } finally {
+      pool.shutdown();
+      MDC.clear();
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package com.ares.concurrency.forkjoin;
+
+import java.util.function.BinaryOperator;
+
+/**
+ * 对下标区间 [lo, hi) 分治：不断把右半部分 fork 出去，自己继续处理左半部分，叶子区间顺序计算，
+ * 最后按区间顺序合并结果，combiner 只需满足结合律
+ */
+class RangeTask<R> extends AdaptiveForkJoinTask<R> {
+
+  /**
+   * 顺序计算 [lo, hi)
+   */
+  @FunctionalInterface
+  interface Leaf<R> {
+
+    R apply(int lo, int hi);
+  }
+
+  private final Leaf<R> leaf;
+  private final BinaryOperator<R> combiner;
+  private final long leafSize;
+  private final int lo;
+  private final int hi;
+  // 同一父任务 fork 出的兄弟任务，按 fork 的逆序链接
+  private RangeTask<R> next;
+
+  RangeTask(int lo, int hi, long leafSize, Leaf<R> leaf, BinaryOperator<R> combiner) {
+    this.lo = lo;
+    this.hi = hi;
+    this.leafSize = leafSize;
+    this.leaf = leaf;
+    this.combiner = combiner;
+  }
+
+  private RangeTask(RangeTask<R> parent, int lo, int hi) {
+    super(parent);
+    this.lo = lo;
+    this.hi = hi;
+    this.leafSize = parent.leafSize;
+    this.leaf = parent.leaf;
+    this.combiner = parent.combiner;
+  }
+
+  @Override
+  protected R computeTask() {
+    int h = hi;
+    RangeTask<R> forked = null;
+    while (shouldSplit(h - lo, leafSize)) {
+      int mid = (lo + h) >>> 1;
+      RangeTask<R> right = new RangeTask<>(this, mid, h);
+      right.next = forked;
+      forked = right;
+      right.fork();
+      h = mid;
+    }
+    R result = leaf.apply(lo, h);
+    // 最后 fork 的任务紧邻当前区间，依次向右合并
+    for (RangeTask<R> task = forked; task != null; task = task.next) {
+      R right = task.tryUnfork() ? task.invoke() : task.join();
+      result = combiner.apply(result, right);
+    }
+    return result;
+  }
+}
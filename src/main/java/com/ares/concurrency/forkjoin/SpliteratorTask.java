@@ -0,0 +1,76 @@
+package com.ares.concurrency.forkjoin;
+
+import java.util.Spliterator;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * 对 Spliterator 分治：trySplit 得到的前缀留给自己，剩余部分 fork 出去，保持遇到顺序
+ */
+class SpliteratorTask<T, R> extends AdaptiveForkJoinTask<R> {
+
+  private final Spliterator<T> spliterator;
+  private final Function<? super T, ? extends R> mapper;
+  private final BinaryOperator<R> reducer;
+  private final R identity;
+  private final long leafSize;
+  private SpliteratorTask<T, R> next;
+
+  SpliteratorTask(Spliterator<T> spliterator, long leafSize,
+      Function<? super T, ? extends R> mapper, R identity, BinaryOperator<R> reducer) {
+    this.spliterator = spliterator;
+    this.leafSize = leafSize;
+    this.mapper = mapper;
+    this.identity = identity;
+    this.reducer = reducer;
+  }
+
+  private SpliteratorTask(SpliteratorTask<T, R> parent, Spliterator<T> spliterator) {
+    super(parent);
+    this.spliterator = spliterator;
+    this.leafSize = parent.leafSize;
+    this.mapper = parent.mapper;
+    this.identity = parent.identity;
+    this.reducer = parent.reducer;
+  }
+
+  @Override
+  protected R computeTask() {
+    Spliterator<T> current = spliterator;
+    SpliteratorTask<T, R> forked = null;
+    Spliterator<T> prefix;
+    while (shouldSplit(current.estimateSize(), leafSize) && (prefix = current.trySplit()) != null) {
+      SpliteratorTask<T, R> suffix = new SpliteratorTask<>(this, current);
+      suffix.next = forked;
+      forked = suffix;
+      suffix.fork();
+      current = prefix;
+    }
+    Accumulator<T, R> accumulator = new Accumulator<>(identity, mapper, reducer);
+    current.forEachRemaining(accumulator::accept);
+    R result = accumulator.result;
+    for (SpliteratorTask<T, R> task = forked; task != null; task = task.next) {
+      R right = task.tryUnfork() ? task.invoke() : task.join();
+      result = reducer.apply(result, right);
+    }
+    return result;
+  }
+
+  private static final class Accumulator<T, R> {
+
+    private final Function<? super T, ? extends R> mapper;
+    private final BinaryOperator<R> reducer;
+    private R result;
+
+    private Accumulator(R identity, Function<? super T, ? extends R> mapper,
+        BinaryOperator<R> reducer) {
+      this.result = identity;
+      this.mapper = mapper;
+      this.reducer = reducer;
+    }
+
+    private void accept(T t) {
+      result = reducer.apply(result, mapper.apply(t));
+    }
+  }
+}
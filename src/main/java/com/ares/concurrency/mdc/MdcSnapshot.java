@@ -0,0 +1,116 @@
+package com.ares.concurrency.mdc;
+
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.slf4j.MDC;
+import org.slf4j.spi.MDCAdapter;
+
+/**
+ * 不可变、可共享的 MDC 快照，提交任务时捕获一次，由同一请求派生的所有任务共用。
+ * <p>
+ * 使用 logback 时直接引用 LogbackMDCAdapter 的只读 map：该 map 在 MDC 被修改前保持不变，
+ * 同一线程在 MDC 未变化时反复捕获得到的是同一个快照，不再复制。其他 MDC 实现退化为复制一次。
+ * <p>
+ * 在工作线程上通过 {@link #attach()} 安装、{@link #detach(MdcSnapshot)} 恢复：
+ * <pre>
+ * MdcSnapshot previous = snapshot.attach();
+ * try {
+ *   task.run();
+ * } finally {
+ *   snapshot.detach(previous);
+ * }
+ * </pre>
+ * 工作线程原本没有 MDC 时，恢复只需清空；任务在提交线程上直接执行且 MDC 未变化时，安装和恢复都会跳过。
+ */
+public final class MdcSnapshot {
+
+  public static final MdcSnapshot EMPTY = new MdcSnapshot(Collections.emptyMap());
+
+  // 本线程最近一次捕获的快照，MDC 未变化时复用
+  private static final ThreadLocal<MdcSnapshot> LAST = new ThreadLocal<>();
+
+  private final Map<String, String> context;
+
+  private MdcSnapshot(Map<String, String> context) {
+    this.context = context;
+  }
+
+  /**
+   * 捕获当前线程的 MDC
+   */
+  public static MdcSnapshot capture() {
+    MDCAdapter adapter = MDC.getMDCAdapter();
+    if (!(adapter instanceof LogbackMDCAdapter logback)) {
+      Map<String, String> copy = MDC.getCopyOfContextMap();
+      return copy == null || copy.isEmpty() ? EMPTY
+          : new MdcSnapshot(Collections.unmodifiableMap(copy));
+    }
+    Map<String, String> current = logback.getPropertyMap();
+    if (current == null || current.isEmpty()) {
+      return EMPTY;
+    }
+    MdcSnapshot last = LAST.get();
+    if (last != null && last.context == current) {
+      return last;
+    }
+    MdcSnapshot snapshot = new MdcSnapshot(current);
+    LAST.set(snapshot);
+    return snapshot;
+  }
+
+  public static MdcSnapshot of(Map<String, String> context) {
+    return context == null || context.isEmpty() ? EMPTY
+        : new MdcSnapshot(Collections.unmodifiableMap(new HashMap<>(context)));
+  }
+
+  /**
+   * 只读的上下文内容
+   */
+  public Map<String, String> getContext() {
+    return context;
+  }
+
+  public String get(String key) {
+    return context.get(key);
+  }
+
+  public boolean isEmpty() {
+    return context.isEmpty();
+  }
+
+  /**
+   * 把快照安装到当前线程，返回安装前的 MDC，须在 finally 中传给 {@link #detach(MdcSnapshot)}
+   */
+  public MdcSnapshot attach() {
+    MdcSnapshot previous = capture();
+    if (previous != this && !(previous.isEmpty() && isEmpty())) {
+      install(context);
+    }
+    return previous;
+  }
+
+  /**
+   * 恢复 {@link #attach()} 之前的 MDC，任务中对 MDC 的修改一并丢弃
+   */
+  public void detach(MdcSnapshot previous) {
+    if (previous == this && capture() == this) {
+      return;
+    }
+    install(previous.context);
+  }
+
+  private static void install(Map<String, String> context) {
+    if (context.isEmpty()) {
+      MDC.clear();
+    } else {
+      MDC.setContextMap(context);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "MdcSnapshot" + context;
+  }
+}
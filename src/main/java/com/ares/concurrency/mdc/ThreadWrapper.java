@@ -1,78 +1,59 @@
 package com.ares.concurrency.mdc;
 
-import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.function.Supplier;
-import org.slf4j.MDC;
 
+/**
+ * 提交时捕获 MDC 快照，执行时安装到工作线程并在结束后恢复，见 MdcSnapshot
+ */
 public class ThreadWrapper {
 
   public static <T> Callable<T> callable(final Callable<T> callable) {
-    final Map<String, String> context = MDC.getCopyOfContextMap();
+    return callable(MdcSnapshot.capture(), callable);
+  }
+
+  /**
+   * 使用已捕获的快照，同一请求派生的多个任务可以共用一个快照
+   */
+  public static <T> Callable<T> callable(final MdcSnapshot context, final Callable<T> callable) {
     return () -> {
-      Map<String, String> previousMdcContext = MDC.getCopyOfContextMap();
-      if (context == null || context.isEmpty()) {
-        MDC.clear();
-      } else {
-        MDC.setContextMap(context);
-      }
+      MdcSnapshot previous = context.attach();
       try {
         return callable.call();
       } finally {
-        if (previousMdcContext != null) {
-          // 恢复之前的MDC上下文
-          MDC.setContextMap(previousMdcContext);
-        } else {
-          // 清除子线程的MDC，避免内存溢出
-          MDC.clear();
-        }
+        // 恢复之前的MDC上下文，线程原本没有MDC时直接清除，避免内存溢出
+        context.detach(previous);
       }
     };
   }
 
   public static Runnable runnable(final Runnable runnable) {
-    final Map<String, String> context = MDC.getCopyOfContextMap();
+    return runnable(MdcSnapshot.capture(), runnable);
+  }
+
+  public static Runnable runnable(final MdcSnapshot context, final Runnable runnable) {
     return () -> {
-      Map<String, String> previousMdcContext = MDC.getCopyOfContextMap();
-      if (context == null || context.isEmpty()) {
-        MDC.clear();
-      } else {
-        MDC.setContextMap(context);
-      }
+      MdcSnapshot previous = context.attach();
       try {
         runnable.run();
       } finally {
-        if (previousMdcContext != null) {
-          // 恢复之前的MDC上下文
-          MDC.setContextMap(previousMdcContext);
-        } else {
-          // 清除子线程的MDC，避免内存溢出
-          MDC.clear();
-        }
+        context.detach(previous);
       }
     };
   }
 
   public static <T> Supplier<T> supplier(Supplier<T> supplier) {
-    final Map<String, String> context = MDC.getCopyOfContextMap();
+    return supplier(MdcSnapshot.capture(), supplier);
+  }
+
+  public static <T> Supplier<T> supplier(final MdcSnapshot context, final Supplier<T> supplier) {
     return () -> {
-      Map<String, String> previousMdcContext = MDC.getCopyOfContextMap();
-      if (context == null || context.isEmpty()) {
-        MDC.clear();
-      } else {
-        MDC.setContextMap(context);
-      }
+      MdcSnapshot previous = context.attach();
       try {
         // 调用原始Supplier
         return supplier.get();
       } finally {
-        // 恢复之前的MDC上下文
-        if (previousMdcContext != null) {
-          MDC.setContextMap(previousMdcContext);
-        } else {
-          // 清除子线程的MDC，避免内存溢出
-          MDC.clear();
-        }
+        context.detach(previous);
       }
     };
   }
@@ -0,0 +1,52 @@
+package com.ares.concurrency.pooled;
+
+import com.ares.concurrency.threadpool.LatencyHistogramMeters;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * 把 TransferQueuePool 的指标注册到 Micrometer，micrometer-core 为可选依赖，只在使用本类时需要。
+ * <p>
+ * 借用耗时和占用时长的导出方式见 {@link LatencyHistogramMeters}。
+ */
+public class PooledMetrics implements MeterBinder {
+
+  private final TransferQueuePool<?> pool;
+  private final Iterable<Tag> tags;
+
+  public PooledMetrics(TransferQueuePool<?> pool, String name) {
+    this(pool, name, Tags.empty());
+  }
+
+  public PooledMetrics(TransferQueuePool<?> pool, String name, Iterable<Tag> tags) {
+    this.pool = pool;
+    this.tags = Tags.concat(tags, "name", name);
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("pool.resources", pool, TransferQueuePool::getTotal)
+        .tags(tags).register(registry);
+    Gauge.builder("pool.resources.active", pool, TransferQueuePool::getActive)
+        .tags(tags).register(registry);
+    Gauge.builder("pool.resources.idle", pool, TransferQueuePool::getIdle)
+        .tags(tags).register(registry);
+    Gauge.builder("pool.pending", pool, TransferQueuePool::getPending)
+        .tags(tags).register(registry);
+    FunctionCounter.builder("pool.acquire.waits", pool, TransferQueuePool::getWaitCount)
+        .tags(tags).register(registry);
+    FunctionCounter.builder("pool.acquire.timeouts", pool, TransferQueuePool::getTimeoutCount)
+        .tags(tags).register(registry);
+    FunctionCounter.builder("pool.created", pool, TransferQueuePool::getCreatedCount)
+        .tags(tags).register(registry);
+    FunctionCounter.builder("pool.destroyed", pool, TransferQueuePool::getDestroyedCount)
+        .tags(tags).register(registry);
+
+    LatencyHistogramMeters.bind(registry, "pool.acquire", tags, pool.getAcquireHistogram());
+    LatencyHistogramMeters.bind(registry, "pool.usage", tags, pool.getUsageHistogram());
+  }
+}
@@ -15,6 +15,12 @@ public class PooledProperties {
   long maxLifetime = 60 * 1000L;
   long acquireTimeout = 5000L;
   TimeUnit acquireTimeunit = TimeUnit.MILLISECONDS;
+  // 空闲超过该时间（毫秒）的资源借出前才校验
+  long validationIdleTime = 500L;
+  // 每个资源的最长存活时间在 maxLifetime 基础上随机缩短至多该比例，避免同一时间集中过期
+  double maxLifetimeVariance = 0.025;
+  // 资源被借出超过该时间（毫秒）未归还时打印借用处的调用栈，0 表示不检测
+  long leakDetectionThreshold = 0L;
 
   public PooledProperties() {
 
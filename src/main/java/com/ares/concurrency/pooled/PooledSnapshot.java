@@ -0,0 +1,19 @@
+package com.ares.concurrency.pooled;
+
+import com.ares.concurrency.threadpool.LatencyHistogram;
+
+/**
+ * TransferQueuePool 某一时刻的运行状态，耗时单位均为纳秒，计数均为启动以来的累计值；acquire 和
+ * usage 的最大值和分位数只统计最近一分钟
+ *
+ * @param pending 正在排队等待资源的借用方数
+ * @param waits   需要排队等待的借用次数
+ * @param acquire 借用耗时，包括排队等待
+ * @param usage   每次借出到归还的占用时长
+ */
+public record PooledSnapshot(long timestamp, int total, int active, int idle, int pending,
+                             long waits, long timeouts, long created, long destroyed,
+                             LatencyHistogram.Snapshot acquire,
+                             LatencyHistogram.Snapshot usage) {
+
+}
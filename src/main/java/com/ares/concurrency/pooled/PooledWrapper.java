@@ -1,19 +1,82 @@
 package com.ares.concurrency.pooled;
 
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.Setter;
 
-@Setter
+/**
+ * 池中资源的包装，每个资源只创建一次，借出和归还通过 CAS 修改 state，不再重新分配
+ */
 @Getter
 public class PooledWrapper<T> {
 
+  static final int STATE_NOT_IN_USE = 0;
+  static final int STATE_IN_USE = 1;
+  // 已从池中移除
+  static final int STATE_REMOVED = -1;
+  // 被后台检查任务或正在归还的线程暂时占用
+  static final int STATE_RESERVED = -2;
+
+  // 类字面量只能是原始类型，updater 只用于本类实例
+  @SuppressWarnings("rawtypes")
+  private static final AtomicIntegerFieldUpdater<PooledWrapper> STATE =
+      AtomicIntegerFieldUpdater.newUpdater(PooledWrapper.class, "state");
+
   private final T resource;
   private final long creationTime;
-  private final long lastAccessTime;
+  // 按 maxLifetime 加随机偏移算出的过期时间
+  private final long expireTime;
+  private volatile long lastAccessTime;
+  private volatile int state;
+  // 借出期间的泄漏检测任务
+  @Getter(AccessLevel.NONE)
+  private volatile ScheduledFuture<?> leakTask;
+  // 最近一次借出的时间（纳秒），用于统计占用时长
+  @Getter(AccessLevel.NONE)
+  private volatile long borrowNanos;
 
-  PooledWrapper(T resource) {
+  PooledWrapper(T resource, int state, long lifetime) {
     this.resource = resource;
     this.creationTime = System.currentTimeMillis();
+    this.expireTime = this.creationTime + lifetime;
     this.lastAccessTime = this.creationTime;
+    this.state = state;
+  }
+
+  boolean compareAndSetState(int expect, int update) {
+    return STATE.compareAndSet(this, expect, update);
+  }
+
+  void setState(int state) {
+    this.state = state;
+  }
+
+  void setLastAccessTime(long lastAccessTime) {
+    this.lastAccessTime = lastAccessTime;
+  }
+
+  void markBorrowed() {
+    this.borrowNanos = System.nanoTime();
+  }
+
+  long usageNanos(long now) {
+    return now - borrowNanos;
+  }
+
+  boolean isExpired(long now) {
+    return now - expireTime >= 0;
+  }
+
+  void setLeakTask(ScheduledFuture<?> leakTask) {
+    this.leakTask = leakTask;
+  }
+
+  void cancelLeakTask() {
+    ScheduledFuture<?> task = leakTask;
+    if (task != null) {
+      leakTask = null;
+      task.cancel(false);
+    }
   }
 }
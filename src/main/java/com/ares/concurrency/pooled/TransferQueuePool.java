@@ -1,32 +1,95 @@
 package com.ares.concurrency.pooled;
 
-import java.util.concurrent.LinkedTransferQueue;
+import static com.ares.concurrency.pooled.PooledWrapper.STATE_IN_USE;
+import static com.ares.concurrency.pooled.PooledWrapper.STATE_NOT_IN_USE;
+import static com.ares.concurrency.pooled.PooledWrapper.STATE_REMOVED;
+import static com.ares.concurrency.pooled.PooledWrapper.STATE_RESERVED;
+
+import com.ares.concurrency.threadpool.LatencyHistogram;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Getter;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * 仿 ConcurrentBag 的资源池：
+ * <ul>
+ *   <li>每个资源只包装一次，借出/归还通过 CAS 修改 PooledWrapper 的 state</li>
+ *   <li>每个线程记录最近归还的资源，借用时优先尝试，同一线程反复借还时基本不与其他线程竞争</li>
+ *   <li>线程本地没有可用资源时扫描全部资源，仍没有则进入 FIFO 等待队列，归还的资源按排队顺序
+ *   直接交给等待者，不经过空闲状态</li>
+ *   <li>资源都在后台线程创建：启动时以及空闲资源少于 minimumIdle 或有等待者时补充，
+ *   总数不超过 maximumPoolSize</li>
+ * </ul>
+ * 只在借出时校验空闲超过 validationIdleTime 的资源，归还时不校验；使用方发现资源已损坏时调用
+ * {@link #invalidate(Object)}。每个资源的存活时间随机缩短至多 maxLifetimeVariance，在借出、
+ * 归还和后台检查时各自过期，不会在同一时刻集中重建。
+ * <p>
+ * 归还时资源须处于使用中，重复归还或归还已被移除的资源只打印警告。资源已经转交给下一个借用方后
+ * 再次归还无法与正常归还区分，使用方需保证每次借用只归还一次。
+ * <p>
+ * {@link #acquireAsync} 不阻塞调用线程。返回的 future 由归还资源的线程完成，其后续阶段默认也在
+ * 该线程执行，耗时的处理应使用 *Async 方法切换线程。
+ * <p>
+ * 运行状态见 {@link #snapshot()}，可通过 PooledMetrics 导出到 Micrometer。
+ */
 public class TransferQueuePool<T> implements AutoCloseable {
 
   private static final Logger logger = LoggerFactory.getLogger(TransferQueuePool.class);
+  private static final int THREAD_LOCAL_SIZE = 16;
+
   private final PooledProperties properties;
-  private final LinkedTransferQueue<PooledWrapper<T>> pool;
+  // 全部资源，读多写少
+  private final CopyOnWriteArrayList<PooledWrapper<T>> shared = new CopyOnWriteArrayList<>();
+  // 等待资源的借用方，按入队顺序服务；超时或取消的等待者会从队列中移除
+  private final ConcurrentLinkedQueue<Waiter<T>> waitQueue = new ConcurrentLinkedQueue<>();
+  private final ThreadLocal<List<PooledWrapper<T>>> threadList =
+      ThreadLocal.withInitial(() -> new ArrayList<>(THREAD_LOCAL_SIZE));
   private final PooledFactory<T> factory;
+  // 定期检查、创建资源和泄漏检测共用的后台线程
   private final ScheduledExecutorService scheduler;
 
   private final AtomicBoolean closed = new AtomicBoolean(false);
+  private final AtomicBoolean fillPending = new AtomicBoolean(false);
+  // 已创建和正在创建的资源数
   private final AtomicInteger total = new AtomicInteger(0);
-  private final AtomicInteger idle = new AtomicInteger(0);
+
+  // 借用耗时，包括排队等待
+  @Getter
+  private final LatencyHistogram acquireHistogram = new LatencyHistogram();
+  // 每次借出到归还的占用时长
+  @Getter
+  private final LatencyHistogram usageHistogram = new LatencyHistogram();
+  private final LongAdder waits = new LongAdder();
+  private final LongAdder timeouts = new LongAdder();
+  private final LongAdder created = new LongAdder();
+  private final LongAdder destroyed = new LongAdder();
+
+  /**
+   * @param origin 开启泄漏检测时记录借用处的调用栈
+   */
+  private record Waiter<T>(CompletableFuture<T> future, Exception origin) {
+
+  }
 
   public TransferQueuePool(PooledProperties properties, PooledFactory<T> factory) throws Exception {
     this.properties = properties;
     this.factory = factory;
-    this.pool = new LinkedTransferQueue<>();
     this.scheduler = new ScheduledThreadPoolExecutor(1, r -> {
       Thread t = new Thread(r);
       t.setDaemon(true);
@@ -34,23 +97,87 @@ public class TransferQueuePool<T> implements AutoCloseable {
       return t;
     });
     ((ScheduledThreadPoolExecutor) this.scheduler).setRemoveOnCancelPolicy(true);
-    initializePool();
+    requestFill();
     startCheckTask();
   }
 
-  private void initializePool() throws Exception {
-    for (int i = 0; i < properties.getMinimumIdle(); i++) {
-      createPoolWrapper();
+  /**
+   * 占用一个新建名额，超过 maximumPoolSize 时返回 false
+   */
+  private boolean reserveSlot() {
+    int current;
+    do {
+      current = total.get();
+      if (current >= properties.getMaximumPoolSize()) {
+        return false;
+      }
+    } while (!total.compareAndSet(current, current + 1));
+    return true;
+  }
+
+  /**
+   * 在已占用的名额上创建资源，失败时归还名额
+   */
+  private PooledWrapper<T> createPoolWrapper(int state) throws Exception {
+    T resource;
+    try {
+      resource = factory.create();
+    } catch (Exception e) {
+      total.decrementAndGet();
+      throw e;
+    }
+    created.increment();
+    long maxLifetime = properties.getMaxLifetime();
+    long variance = (long) (maxLifetime * properties.getMaxLifetimeVariance());
+    long jitter = variance > 0 ? ThreadLocalRandom.current().nextLong(variance) : 0;
+    PooledWrapper<T> wrapper = new PooledWrapper<>(resource, state, maxLifetime - jitter);
+    shared.add(wrapper);
+    return wrapper;
+  }
+
+  /**
+   * 在后台线程补充资源，多次请求合并为一次
+   */
+  private void requestFill() {
+    if (closed.get() || !fillPending.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      scheduler.execute(() -> {
+        fillPending.set(false);
+        fillPool();
+      });
+    } catch (RejectedExecutionException e) {
+      // 池已关闭
+      fillPending.set(false);
+    }
+  }
+
+  private void fillPool() {
+    while (!closed.get() && (!waitQueue.isEmpty() || idleCount() < properties.getMinimumIdle())
+        && reserveSlot()) {
+      try {
+        handOff(createPoolWrapper(STATE_IN_USE));
+      } catch (Exception e) {
+        logger.warn("create pool resource failed", e);
+        // 让最早的等待者尽快失败，而不是等到超时
+        Waiter<T> waiter = waitQueue.poll();
+        if (waiter != null) {
+          waiter.future().completeExceptionally(e);
+        }
+        return;
+      }
     }
   }
 
-  private void createPoolWrapper() throws Exception {
-    logger.info("create pool wrapper......................");
-    T wrapper = factory.create();
-    PooledWrapper<T> pooledWrapper = new PooledWrapper<>(wrapper);
-    pool.offer(pooledWrapper);
-    total.incrementAndGet();
-    idle.incrementAndGet();
+  private int idleCount() {
+    int idle = 0;
+    for (PooledWrapper<T> wrapper : shared) {
+      if (wrapper.getState() == STATE_NOT_IN_USE) {
+        idle++;
+      }
+    }
+    return idle;
   }
 
   private void startCheckTask() {
@@ -63,101 +190,361 @@ public class TransferQueuePool<T> implements AutoCloseable {
 
   private void checkIdleTask() {
     long now = System.currentTimeMillis();
-    logger.info("check idle task,runtime:{}", now);
+    logger.debug("check idle task,runtime:{}", now);
     try {
-      pool.removeIf(wrapper -> {
-        boolean removed = false;
-        // 检查是否过期
-        if (now - wrapper.getCreationTime() > properties
-            .getMaxLifetime()) {
-          removed = true;
-        } else if (!factory.validate(wrapper.getResource())) {
-          removed = true;
+      // 按空闲数而不是总数判断能否回收，避免回收后 fillPool 又立即补建；检查期间被占用的资源
+      // 不计入 idleCount，所以在循环前统计，移除时同步扣减
+      int idle = idleCount();
+      for (PooledWrapper<T> wrapper : shared) {
+        // 只检查空闲资源，占用期间借用方会跳过它
+        if (!wrapper.compareAndSetState(STATE_NOT_IN_USE, STATE_RESERVED)) {
+          continue;
         }
-
-        if (removed) {
-          factory.destroy(wrapper.getResource());
-          total.decrementAndGet();
-          idle.decrementAndGet();
+        long idleTime = now - wrapper.getLastAccessTime();
+        // 只有空闲超时受 minimumIdle 限制，过期和校验失败的资源总是移除
+        boolean retire = idleTime > properties.getIdleTimeout()
+            && idle > properties.getMinimumIdle();
+        if (wrapper.isExpired(now) || retire || (idleTime > properties.getValidationIdleTime()
+            && !factory.validate(wrapper.getResource()))) {
+          remove(wrapper);
+          idle--;
+        } else {
+          // 检查期间到达的等待者没有扫描到它，按归还处理
+          wrapper.setState(STATE_IN_USE);
+          handOff(wrapper);
         }
-        return removed;
-      });
-
-      // 确保维持最小连接数
-      while (total.get() < properties.getMinimumIdle()) {
-        createPoolWrapper();
       }
+
+      // 确保维持最小空闲数
+      fillPool();
     } catch (Exception e) {
       logger.error("check idle task error", e);
     }
   }
 
   public T tryAcquire() throws Exception {
-    return tryAcquire(properties.getAcquireTimeout(), TimeUnit.SECONDS);
+    return tryAcquire(properties.getAcquireTimeout(), properties.getAcquireTimeunit());
   }
 
   public T tryAcquire(long timeout, TimeUnit unit) throws Exception {
     if (closed.get()) {
       throw new IllegalStateException("pool is closed!!!");
     }
-    long deadline = System.nanoTime() + unit.toNanos(timeout);
-    while (true) {
-      long remainingNanos = deadline - System.nanoTime();
-      if (remainingNanos <= 0) {
-        throw new TimeoutException("Timeout waiting for object from pool.");
+    long start = System.nanoTime();
+    long deadline = start + unit.toNanos(timeout);
+    Exception origin = leakOrigin();
+    PooledWrapper<T> wrapper = borrow(origin);
+    if (wrapper != null) {
+      long now = System.nanoTime();
+      acquireHistogram.record(now - start, now);
+      return wrapper.getResource();
+    }
+
+    // 没有空闲资源，排队等待归还或后台新建
+    CompletableFuture<T> waiter = enqueue(origin, start);
+    try {
+      return waiter.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      if (waiter.completeExceptionally(e)) {
+        throw new TimeoutException("resource acquisition timed out");
+      }
+      // 超时的同时等待已结束：拿到了资源，或因创建失败等原因失败
+      return resultOf(waiter);
+    } catch (InterruptedException e) {
+      // 取消失败说明等待已结束，只有拿到了资源才需要归还，失败的等待不能掩盖中断
+      if (!waiter.cancel(false) && waiter.isDone() && !waiter.isCompletedExceptionally()) {
+        release(waiter.join());
       }
+      throw e;
+    } catch (ExecutionException e) {
+      throw unwrap(e);
+    }
+  }
 
-      PooledWrapper<T> wrapper = pool.poll();
-      if (wrapper != null) {
-        if (factory.validate(wrapper.getResource())) {
-          idle.decrementAndGet();
-          return wrapper.getResource();
-        } else {
-          factory.destroy(wrapper.getResource());
-          total.decrementAndGet();
-        }
+  /**
+   * 已结束的等待的结果，失败时抛出原始异常
+   */
+  private static <T> T resultOf(CompletableFuture<T> done) throws Exception {
+    try {
+      return done.get();
+    } catch (ExecutionException e) {
+      throw unwrap(e);
+    }
+  }
+
+  private static Exception unwrap(ExecutionException e) {
+    return e.getCause() instanceof Exception cause ? cause : e;
+  }
+
+  /**
+   * 异步借用资源，超时后返回的 future 以 TimeoutException 失败；取消 future 即退出等待
+   */
+  public CompletableFuture<T> acquireAsync(long timeout, TimeUnit unit) {
+    if (closed.get()) {
+      return CompletableFuture.failedFuture(new IllegalStateException("pool is closed!!!"));
+    }
+    long start = System.nanoTime();
+    Exception origin = leakOrigin();
+    PooledWrapper<T> wrapper = borrow(origin);
+    if (wrapper != null) {
+      long now = System.nanoTime();
+      acquireHistogram.record(now - start, now);
+      return CompletableFuture.completedFuture(wrapper.getResource());
+    }
+    return enqueue(origin, start).orTimeout(timeout, unit);
+  }
+
+  /**
+   * 依次尝试本线程最近归还的资源和全部资源，成功时资源已标记为使用中
+   */
+  private PooledWrapper<T> borrow(Exception origin) {
+    List<PooledWrapper<T>> list = threadList.get();
+    for (int i = list.size() - 1; i >= 0; i--) {
+      PooledWrapper<T> wrapper = list.remove(i);
+      if (wrapper.compareAndSetState(STATE_NOT_IN_USE, STATE_IN_USE) && checkOut(wrapper)) {
+        wrapper.markBorrowed();
+        trackLeak(wrapper, origin);
+        return wrapper;
       }
-      // 队列为空，检查是否可以创建新对象
-      if (total.get() < properties.getMaximumPoolSize()) {
-        synchronized (pool) {
-          if (total.get() < properties.getMaximumPoolSize()) {
-            createPoolWrapper();
-            wrapper = pool.poll();
-            if (wrapper != null) {
-              idle.decrementAndGet();
-              return wrapper.getResource();
-            }
-          }
-        }
+    }
+    for (PooledWrapper<T> wrapper : shared) {
+      if (wrapper.compareAndSetState(STATE_NOT_IN_USE, STATE_IN_USE) && checkOut(wrapper)) {
+        wrapper.markBorrowed();
+        trackLeak(wrapper, origin);
+        return wrapper;
       }
+    }
+    return null;
+  }
 
-      // 队列已满，必须阻塞等待
-      wrapper = pool.poll(timeout, unit);
-      if (wrapper != null) {
-        idle.decrementAndGet();
-        return wrapper.getResource();
+  private CompletableFuture<T> enqueue(Exception origin, long start) {
+    Waiter<T> waiter = new Waiter<>(new CompletableFuture<>(), origin);
+    waits.increment();
+    waitQueue.offer(waiter);
+    waiter.future().whenComplete((resource, e) -> {
+      if (e == null) {
+        long now = System.nanoTime();
+        acquireHistogram.record(now - start, now);
+        return;
+      }
+      waitQueue.remove(waiter);
+      if (e instanceof TimeoutException) {
+        timeouts.increment();
       }
-      throw new TimeoutException("resource acquisition timed out");
+    });
+    // 入队前刚归还的资源可能没有交给任何等待者，入队后再扫描一次
+    PooledWrapper<T> wrapper = borrow(origin);
+    if (wrapper != null) {
+      if (!waiter.future().complete(wrapper.getResource())) {
+        release(wrapper);
+      }
+    } else {
+      requestFill();
+    }
+    return waiter.future();
+  }
+
+  /**
+   * 校验已标记为使用中的资源，过期或无效时移除
+   */
+  private boolean checkOut(PooledWrapper<T> wrapper) {
+    long now = System.currentTimeMillis();
+    if (!wrapper.isExpired(now) && (now - wrapper.getLastAccessTime()
+        <= properties.getValidationIdleTime() || factory.validate(wrapper.getResource()))) {
+      return true;
+    }
+    remove(wrapper);
+    return false;
+  }
+
+  private Exception leakOrigin() {
+    if (properties.getLeakDetectionThreshold() <= 0) {
+      return null;
+    }
+    return new Exception("Resource acquired by thread " + Thread.currentThread().getName()
+        + " was not released within " + properties.getLeakDetectionThreshold() + "ms");
+  }
+
+  private void trackLeak(PooledWrapper<T> wrapper, Exception origin) {
+    if (origin == null) {
+      return;
+    }
+    try {
+      wrapper.setLeakTask(scheduler.schedule(
+          () -> logger.warn("possible resource leak: {}", wrapper.getResource(), origin),
+          properties.getLeakDetectionThreshold(), TimeUnit.MILLISECONDS));
+    } catch (RejectedExecutionException e) {
+      // 池已关闭
     }
   }
 
   public void release(T resource) {
-    logger.info("release resource {}", resource);
     if (resource == null) {
       return;
     }
+    PooledWrapper<T> wrapper = find(resource);
+    if (wrapper == null) {
+      logger.warn("release resource not belonging to the pool {}", resource);
+      return;
+    }
+    release(wrapper);
+  }
+
+  private void release(PooledWrapper<T> wrapper) {
+    // 只有使用中的资源可以归还；重复归还、归还已移除的资源都会让同一个资源交给两个借用方
+    if (!wrapper.compareAndSetState(STATE_IN_USE, STATE_RESERVED)) {
+      logger.warn("release resource that is not in use {}", wrapper.getResource());
+      return;
+    }
+    wrapper.cancelLeakTask();
+    long nanos = System.nanoTime();
+    usageHistogram.record(wrapper.usageNanos(nanos), nanos);
+    long now = System.currentTimeMillis();
+    if (closed.get() || wrapper.isExpired(now)) {
+      remove(wrapper);
+      return;
+    }
+    wrapper.setLastAccessTime(now);
+    // 等待者的后续阶段可能同步归还资源，交出前恢复为使用中
+    wrapper.setState(STATE_IN_USE);
+    if (handOff(wrapper)) {
+      List<PooledWrapper<T>> list = threadList.get();
+      // 已被移除的资源不再保留
+      list.removeIf(w -> w.getState() == STATE_REMOVED);
+      if (list.size() < THREAD_LOCAL_SIZE) {
+        list.add(wrapper);
+      }
+    }
+  }
 
-    if (!closed.get() && factory.validate(resource)) {
-      PooledWrapper<T> wrapper = new PooledWrapper<>(resource);
-      if (!pool.tryTransfer(wrapper)) {
-        pool.offer(wrapper);
-        idle.incrementAndGet();
+  /**
+   * 把使用中的资源交给最早的等待者，没有等待者时置为空闲并返回 true
+   */
+  private boolean handOff(PooledWrapper<T> wrapper) {
+    do {
+      // 资源保持使用中，直接交给等待者
+      Waiter<T> waiter;
+      while ((waiter = waitQueue.poll()) != null) {
+        // 先开始泄漏检测，等待者的后续阶段可能同步归还资源
+        wrapper.markBorrowed();
+        trackLeak(wrapper, waiter.origin());
+        if (waiter.future().complete(wrapper.getResource())) {
+          return false;
+        }
+        wrapper.cancelLeakTask();
       }
-    } else {
-      factory.destroy(resource);
+      wrapper.setState(STATE_NOT_IN_USE);
+      // 置为空闲前入队的等待者可能已经扫描过，需要再检查一次队列
+    } while (!waitQueue.isEmpty()
+        && wrapper.compareAndSetState(STATE_NOT_IN_USE, STATE_IN_USE));
+    return true;
+  }
+
+  /**
+   * 使用方发现资源已损坏时调用，资源会被销毁而不是放回池中
+   */
+  public void invalidate(T resource) {
+    PooledWrapper<T> wrapper = resource != null ? find(resource) : null;
+    if (wrapper != null) {
+      wrapper.cancelLeakTask();
+      if (wrapper.getState() == STATE_IN_USE) {
+        long now = System.nanoTime();
+        usageHistogram.record(wrapper.usageNanos(now), now);
+      }
+      remove(wrapper);
+    }
+  }
+
+  private PooledWrapper<T> find(T resource) {
+    // 借还通常在同一线程，先查线程本地列表
+    List<PooledWrapper<T>> list = threadList.get();
+    for (int i = list.size() - 1; i >= 0; i--) {
+      PooledWrapper<T> wrapper = list.get(i);
+      if (wrapper.getResource() == resource) {
+        return wrapper;
+      }
+    }
+    for (PooledWrapper<T> wrapper : shared) {
+      if (wrapper.getResource() == resource) {
+        return wrapper;
+      }
+    }
+    return null;
+  }
+
+  private void remove(PooledWrapper<T> wrapper) {
+    int state = wrapper.getState();
+    if (state != STATE_REMOVED && wrapper.compareAndSetState(state, STATE_REMOVED)
+        && shared.remove(wrapper)) {
       total.decrementAndGet();
-      idle.decrementAndGet();
+      destroyed.increment();
+      factory.destroy(wrapper.getResource());
+      // 补上被移除的资源，池满时排队的等待者依赖这里创建
+      requestFill();
+    }
+  }
+
+  /**
+   * 池中现有的资源数，不包括正在创建的
+   */
+  public int getTotal() {
+    return shared.size();
+  }
+
+  public int getIdle() {
+    return idleCount();
+  }
+
+  public int getActive() {
+    int active = 0;
+    for (PooledWrapper<T> wrapper : shared) {
+      if (wrapper.getState() == STATE_IN_USE) {
+        active++;
+      }
+    }
+    return active;
+  }
+
+  /**
+   * 正在排队等待资源的借用方数（估计值）
+   */
+  public int getPending() {
+    return waitQueue.size();
+  }
+
+  /**
+   * 需要排队等待的借用次数
+   */
+  public long getWaitCount() {
+    return waits.sum();
+  }
+
+  public long getTimeoutCount() {
+    return timeouts.sum();
+  }
+
+  public long getCreatedCount() {
+    return created.sum();
+  }
+
+  public long getDestroyedCount() {
+    return destroyed.sum();
+  }
+
+  public PooledSnapshot snapshot() {
+    int active = 0;
+    int idle = 0;
+    for (PooledWrapper<T> wrapper : shared) {
+      int state = wrapper.getState();
+      if (state == STATE_IN_USE) {
+        active++;
+      } else if (state == STATE_NOT_IN_USE) {
+        idle++;
+      }
     }
+    return new PooledSnapshot(System.currentTimeMillis(), shared.size(), active, idle,
+        getPending(), waits.sum(), timeouts.sum(), created.sum(), destroyed.sum(),
+        acquireHistogram.snapshot(), usageHistogram.snapshot());
   }
 
   @Override
@@ -174,11 +561,18 @@ public class TransferQueuePool<T> implements AutoCloseable {
         scheduler.shutdownNow();
         Thread.currentThread().interrupt();
       }
-      PooledWrapper<T> wrapper;
-      while ((wrapper = pool.poll()) != null) {
-        factory.destroy(wrapper.getResource());
-        total.decrementAndGet();
-        idle.decrementAndGet();
+      // 使用中的资源在归还时销毁
+      for (PooledWrapper<T> wrapper : shared) {
+        if (wrapper.compareAndSetState(STATE_NOT_IN_USE, STATE_REMOVED)
+            && shared.remove(wrapper)) {
+          total.decrementAndGet();
+          destroyed.increment();
+          factory.destroy(wrapper.getResource());
+        }
+      }
+      Waiter<T> waiter;
+      while ((waiter = waitQueue.poll()) != null) {
+        waiter.future().completeExceptionally(new IllegalStateException("pool is closed!!!"));
       }
     }
   }
@@ -0,0 +1,229 @@
+package com.ares.concurrency.threadpool;
+
+import com.ares.concurrency.DefaultScheduler;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 根据排队时间和任务执行耗时动态调整 DefaultThreadPoolExecutor 的线程数。
+ * <p>
+ * 每个采样周期计算吞吐量 X、到达率 λ 和平均执行耗时 S，按利特尔法则 L = λ·S
+ * 估算需要的忙碌线程数，再加上在目标排队时间内消化当前积压所需的线程数，得到期望的核心线程数。
+ * 排队时间取本周期内开始执行的任务实测的平均排队时间；有积压却没有任务开始执行时视为无限长。
+ * <p>
+ * 调整是渐进的：扩容每次最多翻倍，缩容每次最多减少 shrinkRatio 且排队超时期间不缩容，
+ * 连续 idleSamples 个周期没有任何任务才按空闲缩容，避免线程数随突发流量来回震荡。
+ * 最大线程数设为核心线程数的 burstFactor 倍，留给 WorkerQueue 应对突发流量。
+ */
+public class AdaptivePoolController {
+
+  private static final Logger log = LoggerFactory.getLogger(AdaptivePoolController.class);
+  private static final int HISTORY_SIZE = 64;
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final DefaultThreadPoolExecutor executor;
+  private final AdaptivePoolProperties properties;
+  private final DefaultScheduler scheduler;
+  private final Deque<Decision> history = new ArrayDeque<>(HISTORY_SIZE);
+  private volatile Decision lastDecision;
+
+  // 上一次采样时的累计值
+  private long lastSampleNanos;
+  private long lastCompleted;
+  private long lastServiceNanos;
+  private long lastStarted;
+  private long lastQueueWaitNanos;
+  private int lastQueueLength;
+  // 连续空闲的采样周期数
+  private int idleStreak;
+  // 最近一次观测到的平均执行耗时，没有任务完成的周期沿用该值
+  private double serviceTimeNanos;
+
+  public enum Action {
+    GROW, SHRINK, HOLD
+  }
+
+  /**
+   * 一次调整决策及其依据
+   */
+  public record Decision(long timestamp, Action action, String reason, double arrivalRate,
+                         double throughput, long serviceTimeNanos, long queueWaitNanos,
+                         int queueLength, int activeCount, int previousCorePoolSize,
+                         int corePoolSize, int maximumPoolSize) {
+
+  }
+
+  public AdaptivePoolController(DefaultThreadPoolExecutor executor,
+      AdaptivePoolProperties properties) {
+    if (properties.getMinPoolSize() < 1
+        || properties.getMaxPoolSize() < properties.getMinPoolSize()) {
+      throw new IllegalArgumentException("Invalid pool size bounds: "
+          + properties.getMinPoolSize() + ".." + properties.getMaxPoolSize());
+    }
+    if (properties.getTargetQueueWait() <= 0 || properties.getSampleInterval() <= 0
+        || properties.getIdleSamples() <= 0) {
+      throw new IllegalArgumentException(
+          "Target queue wait, sample interval and idle samples must be positive");
+    }
+    this.executor = executor;
+    this.properties = properties;
+    this.scheduler = new DefaultScheduler(1, true, "adaptive-pool-controller");
+  }
+
+  public synchronized void start() {
+    reset();
+    scheduler.startup();
+    long interval = properties.getSampleInterval();
+    scheduler.schedule(this::sample, interval, interval, properties.getTimeUnit());
+  }
+
+  public void stop() {
+    scheduler.shutdown();
+  }
+
+  private void sample() {
+    try {
+      adjust();
+    } catch (Exception e) {
+      log.error("adaptive pool adjustment failed", e);
+    }
+  }
+
+  /**
+   * 采样一次并按需调整线程数，通常由内部调度线程周期调用
+   */
+  public synchronized Decision adjust() {
+    long now = System.nanoTime();
+    long completed = executor.getCompletedTasks();
+    long service = executor.getServiceNanos();
+    LatencyHistogram queueWaits = executor.getQueueWaitHistogram();
+    long started = queueWaits.getCount();
+    long queueWaitTotal = queueWaits.getTotal();
+    int active = executor.getActiveTasks();
+    // 已提交未完成的任务中除去正在执行的，即为排队中的任务
+    int queueLength = Math.max(0, executor.getSubmittedTasksCount().get() - active);
+
+    double elapsed = Math.max(1, now - lastSampleNanos) / NANOS_PER_SECOND;
+    long finished = completed - lastCompleted;
+    if (finished > 0) {
+      serviceTimeNanos = (double) (service - lastServiceNanos) / finished;
+    }
+    double throughput = finished / elapsed;
+    double arrivalRate = Math.max(0, throughput + (queueLength - lastQueueLength) / elapsed);
+    long queueWait = queueWaitNanos(started - lastStarted, queueWaitTotal - lastQueueWaitNanos,
+        queueLength);
+    // 整个周期内没有任务执行，而不只是采样时刻恰好空闲
+    boolean idle = queueLength == 0 && active == 0 && finished == 0;
+    idleStreak = idle ? idleStreak + 1 : 0;
+
+    lastSampleNanos = now;
+    lastCompleted = completed;
+    lastServiceNanos = service;
+    lastStarted = started;
+    lastQueueWaitNanos = queueWaitTotal;
+    lastQueueLength = queueLength;
+
+    long targetWait = properties.getTimeUnit().toNanos(properties.getTargetQueueWait());
+    int current = executor.getCorePoolSize();
+    int next;
+    String reason;
+    if (finished == 0 && queueLength > 0) {
+      // 有积压却没有任务完成，线程都被阻塞住了
+      next = current * 2;
+      reason = "stalled";
+    } else if (idle) {
+      next = idleStreak >= properties.getIdleSamples()
+          ? shrink(current, properties.getMinPoolSize()) : current;
+      reason = "idle";
+    } else {
+      double busy = arrivalRate * serviceTimeNanos / NANOS_PER_SECOND;
+      double drain = queueLength * serviceTimeNanos / targetWait;
+      int desired = (int) Math.ceil(busy * (1 + properties.getHeadroom()) + drain);
+      if (desired > current) {
+        next = Math.min(desired, current * 2);
+        reason = queueWait > targetWait ? "queueing" : "utilization";
+      } else if (desired < current && queueWait <= targetWait) {
+        next = shrink(current, desired);
+        reason = "over-provisioned";
+      } else {
+        next = current;
+        reason = "steady";
+      }
+    }
+
+    int corePoolSize = clamp(next);
+    int maximumPoolSize = clamp((int) Math.ceil(corePoolSize * properties.getBurstFactor()));
+    int previousMaximum = executor.getMaximumPoolSize();
+    Action action = corePoolSize > current ? Action.GROW
+        : corePoolSize < current ? Action.SHRINK : Action.HOLD;
+    if (corePoolSize != current || maximumPoolSize != previousMaximum) {
+      executor.resize(corePoolSize, maximumPoolSize);
+    }
+
+    Decision decision = new Decision(System.currentTimeMillis(), action, reason, arrivalRate,
+        throughput, (long) serviceTimeNanos, queueWait, queueLength, active, current,
+        corePoolSize, maximumPoolSize);
+    record(decision);
+    if (action != Action.HOLD) {
+      log.info("adaptive pool {}: core {} -> {}, max {}, reason={}, arrival={}/s, service={}ms, "
+              + "wait={}ms", action, current, corePoolSize, maximumPoolSize, reason,
+          Math.round(arrivalRate), TimeUnit.NANOSECONDS.toMillis((long) serviceTimeNanos),
+          TimeUnit.NANOSECONDS.toMillis(queueWait));
+    }
+    return decision;
+  }
+
+  public Decision getLastDecision() {
+    return lastDecision;
+  }
+
+  /**
+   * 最近的调整决策，按时间先后排列
+   */
+  public synchronized List<Decision> getDecisions() {
+    return new ArrayList<>(history);
+  }
+
+  private void reset() {
+    lastSampleNanos = System.nanoTime();
+    lastCompleted = executor.getCompletedTasks();
+    lastServiceNanos = executor.getServiceNanos();
+    lastStarted = executor.getQueueWaitHistogram().getCount();
+    lastQueueWaitNanos = executor.getQueueWaitHistogram().getTotal();
+    idleStreak = 0;
+    lastQueueLength = Math.max(0,
+        executor.getSubmittedTasksCount().get() - executor.getActiveTasks());
+  }
+
+  private void record(Decision decision) {
+    if (history.size() == HISTORY_SIZE) {
+      history.removeFirst();
+    }
+    history.addLast(decision);
+    lastDecision = decision;
+  }
+
+  /**
+   * 本周期开始执行的任务的平均排队时间
+   */
+  private static long queueWaitNanos(long started, long totalWait, int queueLength) {
+    if (started > 0) {
+      return totalWait / started;
+    }
+    return queueLength == 0 ? 0 : Long.MAX_VALUE;
+  }
+
+  private int shrink(int current, int floor) {
+    int step = Math.max(1, (int) (current * properties.getShrinkRatio()));
+    return Math.max(floor, current - step);
+  }
+
+  private int clamp(int size) {
+    return Math.max(properties.getMinPoolSize(), Math.min(properties.getMaxPoolSize(), size));
+  }
+}
@@ -0,0 +1,44 @@
+package com.ares.concurrency.threadpool;
+
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+import lombok.Setter;
+
+@Setter
+@Getter
+public class AdaptivePoolProperties {
+
+  // 核心线程数的调整范围
+  int minPoolSize = 1;
+  int maxPoolSize = 200;
+  // 期望的任务排队时间，超过后扩容
+  long targetQueueWait = 50L;
+  // 采样间隔
+  long sampleInterval = 1000L;
+  TimeUnit timeUnit = TimeUnit.MILLISECONDS;
+  // 按利特尔法则估算的线程数之外预留的余量
+  double headroom = 0.2;
+  // 最大线程数相对核心线程数的倍数，留给 WorkerQueue 应对突发
+  double burstFactor = 1.5;
+  // 每次缩容最多减少的比例，至少减少 1 个
+  double shrinkRatio = 0.1;
+  // 连续多少个采样周期没有任何任务才按空闲缩容
+  int idleSamples = 5;
+
+  public AdaptivePoolProperties() {
+
+  }
+
+  public AdaptivePoolProperties(int minPoolSize, int maxPoolSize) {
+    this.minPoolSize = minPoolSize;
+    this.maxPoolSize = maxPoolSize;
+  }
+
+  public AdaptivePoolProperties(int minPoolSize, int maxPoolSize, long targetQueueWait,
+      TimeUnit unit) {
+    this.minPoolSize = minPoolSize;
+    this.maxPoolSize = maxPoolSize;
+    this.targetQueueWait = targetQueueWait;
+    this.timeUnit = unit;
+  }
+}
@@ -0,0 +1,369 @@
+package com.ares.concurrency.threadpool;
+
+import com.ares.concurrency.DefaultThreadFactory;
+import jakarta.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按截止时间排序的线程池（EDF，最早截止时间优先）。
+ * <p>
+ * 队列先按优先级分类，同一优先级内截止时间越早越先执行，没有截止时间的任务排在最后，
+ * 其余按提交顺序。
+ * 任务开始执行前如果已经过了截止时间就不再执行，按 ExpiryPolicy 让 Future 以 TimeoutException
+ * 失败或直接取消，把过载时的处理能力留给调用方仍在等待的请求。
+ * <p>
+ * 队列是无界的 PriorityBlockingQueue，线程数固定，由 capacity 限制已接收、尚未开始执行的任务数。
+ * 名额在提交前预占，开始执行、移出队列或被拒绝时归还，不读取队列长度，并发提交也不会超出 capacity。
+ * <p>
+ * 通过 execute 提交的普通 Runnable 不包装成 Future，抛出的异常照常传给 afterExecute 和线程的
+ * UncaughtExceptionHandler。
+ */
+public class DeadlineThreadPoolExecutor extends ThreadPoolExecutor {
+
+  // 交给父类的拒绝策略，把拒绝统一抛回 execute 处理，以便归还名额
+  private static final RejectedExecutionHandler RETHROW = new AbortPolicy();
+  private static final Comparator<Runnable> ORDER =
+      Comparator.comparing(r -> ((Ranked) r).rank());
+
+  private final int capacity;
+  private final ExpiryPolicy expiryPolicy;
+  private final AtomicLong sequence = new AtomicLong();
+  // 已接收、尚未开始执行的任务数
+  private final AtomicInteger pending = new AtomicInteger();
+  private volatile RejectedExecutionHandler handler;
+
+  private final LongAdder completedInTime = new LongAdder();
+  private final LongAdder completedLate = new LongAdder();
+  private final LongAdder expired = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+
+  public enum Priority {
+    HIGH, NORMAL, LOW
+  }
+
+  public enum ExpiryPolicy {
+    // Future 以 TimeoutException 失败
+    FAIL_FAST,
+    // Future 被取消
+    DROP
+  }
+
+  public DeadlineThreadPoolExecutor(int threads, int capacity) {
+    this(threads, capacity, ExpiryPolicy.FAIL_FAST,
+        new DefaultThreadFactory("deadline-execute-pool"), new AbortPolicy());
+  }
+
+  public DeadlineThreadPoolExecutor(int threads, int capacity, ExpiryPolicy expiryPolicy,
+      ThreadFactory threadFactory, RejectedExecutionHandler handler) {
+    super(threads, threads, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(11, ORDER),
+        threadFactory, RETHROW);
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive");
+    }
+    this.capacity = capacity;
+    this.expiryPolicy = expiryPolicy;
+    setRejectedExecutionHandler(handler);
+  }
+
+  /**
+   * 提交一个须在 {@code timeout} 内开始执行的任务
+   */
+  public <T> Future<T> submit(Callable<T> task, long timeout, TimeUnit unit) {
+    return submit(task, timeout, unit, Priority.NORMAL);
+  }
+
+  public <T> Future<T> submit(Callable<T> task, long timeout, TimeUnit unit, Priority priority) {
+    if (task == null || priority == null) {
+      throw new NullPointerException();
+    }
+    DeadlineTask<T> future = new DeadlineTask<>(task,
+        new Rank(priority, true, System.nanoTime() + unit.toNanos(timeout), nextSeq()));
+    execute(future);
+    return future;
+  }
+
+  public Future<?> submit(Runnable task, long timeout, TimeUnit unit, Priority priority) {
+    return submit(() -> {
+      task.run();
+      return null;
+    }, timeout, unit, priority);
+  }
+
+  /**
+   * 没有截止时间的任务以 NORMAL 优先级排在有截止时间的任务之后
+   */
+  @Override
+  public void execute(@Nonnull Runnable command) {
+    Runnable task = command instanceof Ranked ? command : new PlainTask(command, noDeadline());
+    if (pending.incrementAndGet() > capacity) {
+      pending.decrementAndGet();
+      rejected.increment();
+      handler.rejectedExecution(command, this);
+      return;
+    }
+    try {
+      super.execute(task);
+    } catch (RejectedExecutionException rx) {
+      // 关闭后被拒绝；关闭复查时已移出队列的任务在 remove 中归还过名额，不会重复归还
+      release(task);
+      rejected.increment();
+      handler.rejectedExecution(command, this);
+    }
+  }
+
+  @Override
+  protected void beforeExecute(Thread t, Runnable r) {
+    release(r);
+  }
+
+  @Override
+  public boolean remove(Runnable task) {
+    Runnable queued = task;
+    if (!(task instanceof Ranked)) {
+      queued = null;
+      for (Runnable r : getQueue()) {
+        if (r instanceof PlainTask plain && plain.command == task) {
+          queued = r;
+          break;
+        }
+      }
+    }
+    if (queued != null && super.remove(queued)) {
+      release(queued);
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public void purge() {
+    for (Runnable r : getQueue()) {
+      if (r instanceof Future<?> future && future.isCancelled() && getQueue().remove(r)) {
+        release(r);
+      }
+    }
+    super.purge();
+  }
+
+  /**
+   * 返回未执行的原始任务
+   */
+  @Nonnull
+  @Override
+  public List<Runnable> shutdownNow() {
+    List<Runnable> tasks = super.shutdownNow();
+    List<Runnable> unwrapped = new ArrayList<>(tasks.size());
+    for (Runnable r : tasks) {
+      release(r);
+      unwrapped.add(r instanceof PlainTask plain ? plain.command : r);
+    }
+    return unwrapped;
+  }
+
+  @Override
+  public void setRejectedExecutionHandler(RejectedExecutionHandler handler) {
+    if (handler == null) {
+      throw new NullPointerException();
+    }
+    this.handler = handler;
+  }
+
+  @Override
+  public RejectedExecutionHandler getRejectedExecutionHandler() {
+    return handler;
+  }
+
+  @Override
+  protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+    return new DeadlineTask<>(runnable, value, noDeadline());
+  }
+
+  @Override
+  protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+    return new DeadlineTask<>(callable, noDeadline());
+  }
+
+  private void release(Runnable task) {
+    if (task instanceof Ranked ranked && ranked.rank().release()) {
+      pending.decrementAndGet();
+    }
+  }
+
+  private long nextSeq() {
+    return sequence.getAndIncrement();
+  }
+
+  private Rank noDeadline() {
+    return new Rank(Priority.NORMAL, false, 0L, nextSeq());
+  }
+
+  /**
+   * 已接收、尚未开始执行的任务数
+   */
+  public int getPendingCount() {
+    return pending.get();
+  }
+
+  /**
+   * 截止时间前完成的任务数
+   */
+  public long getCompletedInTime() {
+    return completedInTime.sum();
+  }
+
+  /**
+   * 截止时间前开始、但在截止时间后才完成的任务数
+   */
+  public long getCompletedLate() {
+    return completedLate.sum();
+  }
+
+  /**
+   * 在队列中等到过期、没有执行的任务数
+   */
+  public long getExpired() {
+    return expired.sum();
+  }
+
+  public long getRejected() {
+    return rejected.sum();
+  }
+
+  /**
+   * 有截止时间的任务中错过截止时间的比例
+   */
+  public double getDeadlineMissRatio() {
+    long missed = completedLate.sum() + expired.sum();
+    long total = missed + completedInTime.sum();
+    return total == 0 ? 0 : (double) missed / total;
+  }
+
+  // 队列中的任务都实现该接口，按 Rank 排序
+  private interface Ranked {
+
+    Rank rank();
+  }
+
+  private static final class Rank implements Comparable<Rank> {
+
+    private final Priority priority;
+    private final boolean hasDeadline;
+    private final long deadline;
+    private final long seq;
+    // 名额是否已归还。开始执行、移出队列、被拒绝至多发生一个，唯一的先后两步（关闭复查时先移出
+    // 再拒绝）在同一个提交线程上，普通字段即可
+    private boolean released;
+
+    private Rank(Priority priority, boolean hasDeadline, long deadline, long seq) {
+      this.priority = priority;
+      this.hasDeadline = hasDeadline;
+      this.deadline = deadline;
+      this.seq = seq;
+    }
+
+    private boolean release() {
+      if (released) {
+        return false;
+      }
+      released = true;
+      return true;
+    }
+
+    @Override
+    public int compareTo(Rank other) {
+      int c = priority.compareTo(other.priority);
+      if (c != 0) {
+        return c;
+      }
+      if (hasDeadline != other.hasDeadline) {
+        return hasDeadline ? -1 : 1;
+      }
+      if (hasDeadline && deadline != other.deadline) {
+        return deadline - other.deadline < 0 ? -1 : 1;
+      }
+      return Long.compare(seq, other.seq);
+    }
+  }
+
+  // execute 提交的普通任务，异常直接抛给工作线程
+  private static final class PlainTask implements Runnable, Ranked {
+
+    private final Runnable command;
+    private final Rank rank;
+
+    private PlainTask(Runnable command, Rank rank) {
+      this.command = command;
+      this.rank = rank;
+    }
+
+    @Override
+    public Rank rank() {
+      return rank;
+    }
+
+    @Override
+    public void run() {
+      command.run();
+    }
+  }
+
+  private final class DeadlineTask<V> extends FutureTask<V> implements Ranked {
+
+    private final Rank rank;
+
+    private DeadlineTask(Callable<V> callable, Rank rank) {
+      super(callable);
+      this.rank = rank;
+    }
+
+    private DeadlineTask(Runnable runnable, V result, Rank rank) {
+      super(runnable, result);
+      this.rank = rank;
+    }
+
+    @Override
+    public Rank rank() {
+      return rank;
+    }
+
+    @Override
+    public void run() {
+      if (!rank.hasDeadline) {
+        super.run();
+        return;
+      }
+      long deadline = rank.deadline;
+      if (System.nanoTime() - deadline >= 0) {
+        expired.increment();
+        if (expiryPolicy == ExpiryPolicy.DROP) {
+          cancel(false);
+        } else {
+          setException(new TimeoutException("Deadline exceeded before the task started"));
+        }
+        return;
+      }
+      super.run();
+      if (System.nanoTime() - deadline > 0) {
+        completedLate.increment();
+      } else {
+        completedInTime.increment();
+      }
+    }
+  }
+}
@@ -2,13 +2,21 @@ package com.ares.concurrency.threadpool;
 
 import com.ares.concurrency.DefaultThreadFactory;
 import jakarta.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import lombok.Getter;
 
 public class DefaultThreadPoolExecutor extends ThreadPoolExecutor {
@@ -16,14 +24,63 @@ public class DefaultThreadPoolExecutor extends ThreadPoolExecutor {
   private static final int MAXIMUM_POOL_SIZE = 200;
   private static final int KEEP_ALIVE_TIME = 60 * 1000;
   private static final int CORE_POOL_SIZE = Runtime.getRuntime().availableProcessors() + 1;
+  // 交给父类的拒绝策略，把拒绝统一抛回 execute 处理，以便按原因计数
+  private static final RejectedExecutionHandler RETHROW = new AbortPolicy();
 
   // 正在处理的任务数
   @Getter
   protected final AtomicInteger submittedTasksCount = new AtomicInteger(0);
 
-  // 最大允许同时处理的任务数
+  // 最大允许同时处理的任务数，随最大线程数调整
   @Getter
-  protected final int maxTask;
+  protected volatile int maxTask;
+  private final int queueCapacity;
+
+  // 任务在队列中的等待耗时和执行耗时
+  @Getter
+  private final LatencyHistogram queueWaitHistogram = new LatencyHistogram();
+  @Getter
+  private final LatencyHistogram executionHistogram = new LatencyHistogram();
+
+  // 正在执行任务的线程数及其峰值
+  private final AtomicInteger activeTasks = new AtomicInteger();
+  private final AtomicInteger peakActiveTasks = new AtomicInteger();
+  private final LongAdder[] rejections = new LongAdder[RejectReason.values().length];
+
+  private volatile RejectedExecutionHandler handler;
+  private volatile Admission admission = new Admission(AdmissionMode.REJECT, 0);
+
+  // BLOCK 模式下等待名额的提交线程
+  private final ReentrantLock admissionLock = new ReentrantLock();
+  private final Condition slotFreed = admissionLock.newCondition();
+  private volatile int blockedProducers;
+
+  /**
+   * 任务数超过 maxTask 时的处理方式
+   */
+  public enum AdmissionMode {
+    // 交给 RejectedExecutionHandler
+    REJECT,
+    // 由提交线程直接执行
+    CALLER_RUNS,
+    // 阻塞提交线程直到有名额或超时，超时后交给 RejectedExecutionHandler
+    BLOCK,
+    // 丢弃队列中最早的任务，为新任务腾出名额
+    DISCARD_OLDEST
+  }
+
+  private record Admission(AdmissionMode mode, long timeoutNanos) {
+
+  }
+
+  public enum RejectReason {
+    // 因超过 maxTask 限制而未进入线程池，包括由提交线程执行和被丢弃的最早任务
+    OVER_LIMIT,
+    // 线程数已满且无法入队
+    SATURATED,
+    // 线程池已关闭
+    SHUTDOWN
+  }
 
   public DefaultThreadPoolExecutor() {
     this(CORE_POOL_SIZE, MAXIMUM_POOL_SIZE);
@@ -82,32 +139,311 @@ public class DefaultThreadPoolExecutor extends ThreadPoolExecutor {
   public DefaultThreadPoolExecutor(int corePoolSize, int maximumPoolSize, int queueCapacity,
       long keepAliveTime, TimeUnit unit, BlockingQueue<Runnable> workQueue,
       ThreadFactory threadFactory, RejectedExecutionHandler handler) {
-    super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler);
+    super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, RETHROW);
     ((WorkerQueue) getQueue()).setExecutor(this);
     this.maxTask = maximumPoolSize + queueCapacity;
+    this.queueCapacity = queueCapacity;
+    this.handler = handler;
+    for (int i = 0; i < rejections.length; i++) {
+      rejections[i] = new LongAdder();
+    }
   }
 
   @Override
   public void execute(@Nonnull Runnable command) {
-    int count = submittedTasksCount.incrementAndGet();
-    // 超过最大的并发任务限制，进行 reject
+    TimedTask task = new TimedTask(command, System.nanoTime());
+    // 超过最大的并发任务限制，按 AdmissionMode 处理
     // 依赖的LinkedTransferQueue没有长度限制，因此这里进行控制
-    if (count > maxTask) {
+    // 限流复用这一次计数，不额外增加原子操作
+    if (submittedTasksCount.incrementAndGet() > maxTask) {
       submittedTasksCount.decrementAndGet();
-      getRejectedExecutionHandler().rejectedExecution(command, this);
+      if (!admitOverLimit(command)) {
+        return;
+      }
     }
 
     try {
-      super.execute(command);
+      super.execute(task);
     } catch (RejectedExecutionException rx) {
-      if (!((WorkerQueue) getQueue()).force(command)) {
+      if (isShutdown() || !((WorkerQueue) getQueue()).force(task)) {
         submittedTasksCount.decrementAndGet();
-        getRejectedExecutionHandler().rejectedExecution(command, this);
+        reject(command, isShutdown() ? RejectReason.SHUTDOWN : RejectReason.SATURATED);
+      }
+    }
+  }
+
+  /**
+   * 任务数已满时按 AdmissionMode 处理 command，返回 true 表示已为其占到名额，应继续提交
+   */
+  private boolean admitOverLimit(Runnable command) {
+    Admission current = admission;
+    switch (current.mode()) {
+      case CALLER_RUNS -> {
+        if (isShutdown()) {
+          reject(command, RejectReason.SHUTDOWN);
+        } else {
+          rejections[RejectReason.OVER_LIMIT.ordinal()].increment();
+          command.run();
+        }
+        return false;
+      }
+      case BLOCK -> {
+        if (awaitSlot(current.timeoutNanos())) {
+          return true;
+        }
+        reject(command, isShutdown() ? RejectReason.SHUTDOWN : RejectReason.OVER_LIMIT);
+        return false;
+      }
+      case DISCARD_OLDEST -> {
+        // 最早任务的名额直接转给新任务
+        Runnable oldest = isShutdown() ? null : getQueue().poll();
+        if (oldest != null) {
+          rejections[RejectReason.OVER_LIMIT.ordinal()].increment();
+          if (oldest instanceof TimedTask task && task.command instanceof Future<?> future) {
+            future.cancel(false);
+          }
+          return true;
+        }
+        // 名额都被正在执行的任务占用，没有可丢弃的
+        reject(command, isShutdown() ? RejectReason.SHUTDOWN : RejectReason.OVER_LIMIT);
+        return false;
+      }
+      default -> {
+        reject(command, RejectReason.OVER_LIMIT);
+        return false;
+      }
+    }
+  }
+
+  private boolean awaitSlot(long timeoutNanos) {
+    long deadline = System.nanoTime() + timeoutNanos;
+    admissionLock.lock();
+    try {
+      blockedProducers++;
+      while (!isShutdown()) {
+        int count = submittedTasksCount.get();
+        if (count < maxTask) {
+          if (submittedTasksCount.compareAndSet(count, count + 1)) {
+            return true;
+          }
+          continue;
+        }
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        slotFreed.awaitNanos(remaining);
       }
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } finally {
+      blockedProducers--;
+      admissionLock.unlock();
+    }
+  }
+
+  private void signalSlotFreed(boolean all) {
+    admissionLock.lock();
+    try {
+      if (all) {
+        slotFreed.signalAll();
+      } else {
+        slotFreed.signal();
+      }
+    } finally {
+      admissionLock.unlock();
+    }
+  }
+
+  private void reject(Runnable command, RejectReason reason) {
+    rejections[reason.ordinal()].increment();
+    handler.rejectedExecution(command, this);
+  }
+
+  @Override
+  protected void beforeExecute(Thread t, Runnable r) {
+    int active = activeTasks.incrementAndGet();
+    if (active > peakActiveTasks.get()) {
+      peakActiveTasks.accumulateAndGet(active, Math::max);
+    }
+    if (r instanceof TimedTask task) {
+      task.startNanos = System.nanoTime();
+      queueWaitHistogram.record(task.startNanos - task.enqueueNanos, task.startNanos);
     }
   }
 
   protected void afterExecute(Runnable r, Throwable t) {
-    submittedTasksCount.decrementAndGet();
+    if (r instanceof TimedTask task) {
+      long now = System.nanoTime();
+      executionHistogram.record(now - task.startNanos, now);
+    }
+    activeTasks.decrementAndGet();
+    // 只有存在阻塞的提交线程时才需要加锁唤醒
+    if (submittedTasksCount.decrementAndGet() < maxTask && blockedProducers > 0) {
+      signalSlotFreed(false);
+    }
+  }
+
+  public void setAdmissionMode(AdmissionMode mode) {
+    setAdmissionMode(mode, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @param blockTimeout BLOCK 模式下提交线程最多等待的时间，其他模式忽略
+   */
+  public void setAdmissionMode(AdmissionMode mode, long blockTimeout, TimeUnit unit) {
+    if (mode == null) {
+      throw new NullPointerException();
+    }
+    if (blockTimeout < 0) {
+      throw new IllegalArgumentException("Block timeout cannot be negative");
+    }
+    this.admission = new Admission(mode, unit.toNanos(blockTimeout));
+  }
+
+  public AdmissionMode getAdmissionMode() {
+    return admission.mode();
+  }
+
+  @Override
+  public void setMaximumPoolSize(int maximumPoolSize) {
+    super.setMaximumPoolSize(maximumPoolSize);
+    this.maxTask = maximumPoolSize + queueCapacity;
+    if (blockedProducers > 0) {
+      signalSlotFreed(true);
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    super.shutdown();
+    signalSlotFreed(true);
+  }
+
+  @Override
+  public void setRejectedExecutionHandler(RejectedExecutionHandler handler) {
+    if (handler == null) {
+      throw new NullPointerException();
+    }
+    this.handler = handler;
+  }
+
+  @Override
+  public RejectedExecutionHandler getRejectedExecutionHandler() {
+    return handler;
+  }
+
+  /**
+   * 返回未执行的原始任务
+   */
+  @Override
+  public List<Runnable> shutdownNow() {
+    List<Runnable> tasks = super.shutdownNow();
+    // 取出的任务不会再经过 afterExecute，在这里归还名额
+    submittedTasksCount.addAndGet(-tasks.size());
+    signalSlotFreed(true);
+    List<Runnable> unwrapped = new ArrayList<>(tasks.size());
+    for (Runnable r : tasks) {
+      unwrapped.add(r instanceof TimedTask task ? task.command : r);
+    }
+    return unwrapped;
+  }
+
+  @Override
+  public boolean remove(Runnable command) {
+    // ThreadPoolExecutor.execute 关闭后复查时以 TimedTask 本身调用，移除成功后抛出的拒绝由
+    // execute 统一归还名额
+    if (command instanceof TimedTask) {
+      return super.remove(command);
+    }
+    for (Runnable r : getQueue()) {
+      if (r instanceof TimedTask task && task.command == command && super.remove(r)) {
+        submittedTasksCount.decrementAndGet();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void purge() {
+    for (Runnable r : getQueue()) {
+      if (r instanceof TimedTask task && task.command instanceof Future<?> future
+          && future.isCancelled() && getQueue().remove(r)) {
+        submittedTasksCount.decrementAndGet();
+      }
+    }
+    super.purge();
+  }
+
+  /**
+   * 同时调整核心线程数和最大线程数，按新旧值的大小关系决定先后顺序，
+   * 避免出现核心线程数大于最大线程数的中间状态
+   */
+  public synchronized void resize(int corePoolSize, int maximumPoolSize) {
+    if (corePoolSize < 0 || maximumPoolSize <= 0 || maximumPoolSize < corePoolSize) {
+      throw new IllegalArgumentException(
+          "Invalid pool size: core=" + corePoolSize + ", max=" + maximumPoolSize);
+    }
+    if (maximumPoolSize >= getCorePoolSize()) {
+      setMaximumPoolSize(maximumPoolSize);
+      setCorePoolSize(corePoolSize);
+    } else {
+      setCorePoolSize(corePoolSize);
+      setMaximumPoolSize(maximumPoolSize);
+    }
+  }
+
+  public long getCompletedTasks() {
+    return executionHistogram.getCount();
+  }
+
+  public long getServiceNanos() {
+    return executionHistogram.getTotal();
+  }
+
+  public int getActiveTasks() {
+    return activeTasks.get();
+  }
+
+  public int getPeakActiveTasks() {
+    return peakActiveTasks.get();
+  }
+
+  public long getRejectedCount(RejectReason reason) {
+    return rejections[reason.ordinal()].sum();
+  }
+
+  public ThreadPoolSnapshot snapshot() {
+    Map<RejectReason, Long> rejected = new EnumMap<>(RejectReason.class);
+    for (RejectReason reason : RejectReason.values()) {
+      rejected.put(reason, getRejectedCount(reason));
+    }
+    int active = activeTasks.get();
+    return new ThreadPoolSnapshot(System.currentTimeMillis(), getCorePoolSize(),
+        getMaximumPoolSize(), getPoolSize(), getLargestPoolSize(), active,
+        peakActiveTasks.get(), Math.max(0, submittedTasksCount.get() - active),
+        queueWaitHistogram.snapshot(), executionHistogram.snapshot(), rejected);
+  }
+
+  // 记录入队时间，供 beforeExecute/afterExecute 计算排队和执行耗时
+  private static final class TimedTask implements Runnable {
+
+    private final Runnable command;
+    private final long enqueueNanos;
+    // 只由执行该任务的工作线程读写
+    private long startNanos;
+
+    private TimedTask(Runnable command, long enqueueNanos) {
+      this.command = command;
+      this.enqueueNanos = enqueueNanos;
+    }
+
+    @Override
+    public void run() {
+      command.run();
+    }
   }
 }
@@ -0,0 +1,215 @@
+package com.ares.concurrency.threadpool;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的对数-线性分桶直方图（HdrHistogram 的简化版），记录纳秒级耗时。
+ * <p>
+ * 每个 2 的幂区间再等分为 32 个子桶，分位数的相对误差不超过 1/32；超过 2^41 纳秒（约 36 分钟）的值
+ * 计入最后一个桶。
+ * <p>
+ * 分位数和最大值只反映最近一个时间窗口（默认 1 分钟）：窗口分成若干时间片，记录只写当前时间片，
+ * 读取时合并全部时间片，最旧的时间片到期后清空复用，因此能跟上当前负载的变化。次数和总耗时是启动
+ * 以来的累计值。
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_EXPONENT = 40;
+  private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+  private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+  private static final long DEFAULT_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+  private static final int DEFAULT_SLOTS = 3;
+
+  private final AtomicLongArray[] counts;
+  private final AtomicLong[] max;
+  private final long slotNanos;
+  private volatile int current;
+  // 下一次轮转的时间，只有把它推进成功的线程负责清空到期的时间片
+  private final AtomicLong nextRotation;
+
+  private final LongAdder count = new LongAdder();
+  private final LongAdder total = new LongAdder();
+
+  /**
+   * 耗时分布的快照，单位纳秒；count 和 mean 为累计值，max 和分位数为最近窗口内的值
+   */
+  public record Snapshot(long count, long mean, long max, long p50, long p90, long p99,
+                         long p999) {
+
+  }
+
+  public LatencyHistogram() {
+    this(DEFAULT_WINDOW_NANOS, TimeUnit.NANOSECONDS, DEFAULT_SLOTS);
+  }
+
+  /**
+   * @param window 分位数统计的时间窗口
+   * @param slots  窗口分成的时间片数，越多过期越平滑，读取开销也越大
+   */
+  public LatencyHistogram(long window, TimeUnit unit, int slots) {
+    if (window <= 0 || slots <= 0) {
+      throw new IllegalArgumentException("Invalid window or slots");
+    }
+    this.slotNanos = Math.max(1, unit.toNanos(window) / slots);
+    this.counts = new AtomicLongArray[slots];
+    this.max = new AtomicLong[slots];
+    for (int i = 0; i < slots; i++) {
+      counts[i] = new AtomicLongArray(BUCKET_COUNT);
+      max[i] = new AtomicLong();
+    }
+    this.nextRotation = new AtomicLong(System.nanoTime() + slotNanos);
+  }
+
+  public void record(long nanos) {
+    record(nanos, System.nanoTime());
+  }
+
+  /**
+   * @param now 调用方计算耗时时已经取得的 {@link System#nanoTime()}，省去一次时钟读取
+   */
+  public void record(long nanos, long now) {
+    long value = Math.max(0, Math.min(nanos, MAX_VALUE));
+    int slot = rotate(now);
+    counts[slot].incrementAndGet(indexOf(value));
+    AtomicLong slotMax = max[slot];
+    if (value > slotMax.get()) {
+      slotMax.accumulateAndGet(value, Math::max);
+    }
+    count.increment();
+    total.add(value);
+  }
+
+  /**
+   * 清空已过期的时间片并返回当前时间片。轮转期间并发写入被清空时间片的少量记录可能丢失
+   */
+  private int rotate(long now) {
+    long next = nextRotation.get();
+    if (now - next < 0) {
+      return current;
+    }
+    long steps = (now - next) / slotNanos + 1;
+    if (!nextRotation.compareAndSet(next, next + steps * slotNanos)) {
+      return current;
+    }
+    int slot = current;
+    for (long i = 0, n = Math.min(steps, counts.length); i < n; i++) {
+      slot = (slot + 1) % counts.length;
+      AtomicLongArray slotCounts = counts[slot];
+      for (int j = 0; j < BUCKET_COUNT; j++) {
+        if (slotCounts.get(j) != 0) {
+          slotCounts.set(j, 0);
+        }
+      }
+      max[slot].set(0);
+    }
+    current = slot;
+    return slot;
+  }
+
+  /**
+   * 启动以来的记录次数
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * 启动以来所有记录值之和
+   */
+  public long getTotal() {
+    return total.sum();
+  }
+
+  /**
+   * 最近窗口内的最大值
+   */
+  public long getMax() {
+    rotate(System.nanoTime());
+    return windowMax();
+  }
+
+  /**
+   * 最近窗口内第 {@code percentile}（0 到 100）百分位的值，取所在桶的上界
+   */
+  public long valueAtPercentile(double percentile) {
+    rotate(System.nanoTime());
+    long[] copy = copyCounts();
+    return valueAt(copy, sum(copy), windowMax(), percentile);
+  }
+
+  public Snapshot snapshot() {
+    rotate(System.nanoTime());
+    long[] copy = copyCounts();
+    long windowCount = sum(copy);
+    long windowMax = windowMax();
+    long n = count.sum();
+    long mean = n == 0 ? 0 : total.sum() / n;
+    return new Snapshot(n, mean, windowMax, valueAt(copy, windowCount, windowMax, 50),
+        valueAt(copy, windowCount, windowMax, 90), valueAt(copy, windowCount, windowMax, 99),
+        valueAt(copy, windowCount, windowMax, 99.9));
+  }
+
+  private long windowMax() {
+    long result = 0;
+    for (AtomicLong slotMax : max) {
+      result = Math.max(result, slotMax.get());
+    }
+    return result;
+  }
+
+  private long[] copyCounts() {
+    long[] copy = new long[BUCKET_COUNT];
+    for (AtomicLongArray slotCounts : counts) {
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        copy[i] += slotCounts.get(i);
+      }
+    }
+    return copy;
+  }
+
+  private static long valueAt(long[] copy, long n, long max, double percentile) {
+    if (n == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(n * percentile / 100));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += copy[i];
+      if (seen >= rank) {
+        return Math.min(upperBound(i), max);
+      }
+    }
+    return max;
+  }
+
+  private static long sum(long[] copy) {
+    long n = 0;
+    for (long c : copy) {
+      n += c;
+    }
+    return n;
+  }
+
+  static int indexOf(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) - SUB_BUCKET_COUNT);
+  }
+
+  static long upperBound(int index) {
+    int bucket = index >>> SUB_BUCKET_BITS;
+    long sub = index & (SUB_BUCKET_COUNT - 1);
+    if (bucket == 0) {
+      return sub;
+    }
+    return ((SUB_BUCKET_COUNT + sub + 1) << (bucket - 1)) - 1;
+  }
+}
@@ -0,0 +1,36 @@
+package com.ares.concurrency.threadpool;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把 {@link LatencyHistogram} 以分位数 gauge 的形式注册到 Micrometer，单位秒，另有 name.max 导出
+ * 最大值。分位数和最大值只统计最近一分钟，反映当前负载而不是启动以来的分布，可以直接用于告警。
+ * micrometer-core 为可选依赖，只在使用本类时需要。
+ */
+public final class LatencyHistogramMeters {
+
+  private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+  private LatencyHistogramMeters() {
+  }
+
+  public static void bind(MeterRegistry registry, String name, Iterable<Tag> tags,
+      LatencyHistogram histogram) {
+    for (double quantile : QUANTILES) {
+      Gauge.builder(name, histogram, h -> seconds(h.valueAtPercentile(quantile * 100)))
+          .tags(tags)
+          .tag("quantile", String.valueOf(quantile))
+          .baseUnit("seconds")
+          .register(registry);
+    }
+    Gauge.builder(name + ".max", histogram, h -> seconds(h.getMax()))
+        .tags(tags).baseUnit("seconds").register(registry);
+  }
+
+  private static double seconds(long nanos) {
+    return (double) nanos / TimeUnit.SECONDS.toNanos(1);
+  }
+}
@@ -0,0 +1,62 @@
+package com.ares.concurrency.threadpool;
+
+import com.ares.concurrency.threadpool.DefaultThreadPoolExecutor.RejectReason;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.Locale;
+
+/**
+ * 把 DefaultThreadPoolExecutor 的指标注册到 Micrometer，micrometer-core 为可选依赖，
+ * 只在使用本类时需要。
+ * <p>
+ * 排队和执行耗时的导出方式见 {@link LatencyHistogramMeters}。
+ */
+public class ThreadPoolMetrics implements MeterBinder {
+
+  private final DefaultThreadPoolExecutor executor;
+  private final Iterable<Tag> tags;
+
+  public ThreadPoolMetrics(DefaultThreadPoolExecutor executor, String name) {
+    this(executor, name, Tags.empty());
+  }
+
+  public ThreadPoolMetrics(DefaultThreadPoolExecutor executor, String name, Iterable<Tag> tags) {
+    this.executor = executor;
+    this.tags = Tags.concat(tags, "name", name);
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("executor.pool.size", executor, DefaultThreadPoolExecutor::getPoolSize)
+        .tags(tags).register(registry);
+    Gauge.builder("executor.pool.core", executor, DefaultThreadPoolExecutor::getCorePoolSize)
+        .tags(tags).register(registry);
+    Gauge.builder("executor.pool.max", executor, DefaultThreadPoolExecutor::getMaximumPoolSize)
+        .tags(tags).register(registry);
+    Gauge.builder("executor.active", executor, DefaultThreadPoolExecutor::getActiveTasks)
+        .tags(tags).register(registry);
+    Gauge.builder("executor.active.peak", executor,
+        DefaultThreadPoolExecutor::getPeakActiveTasks).tags(tags).register(registry);
+    Gauge.builder("executor.queued", executor,
+            e -> Math.max(0, e.getSubmittedTasksCount().get() - e.getActiveTasks()))
+        .tags(tags).register(registry);
+    FunctionCounter.builder("executor.completed", executor,
+        DefaultThreadPoolExecutor::getCompletedTasks).tags(tags).register(registry);
+
+    for (RejectReason reason : RejectReason.values()) {
+      FunctionCounter.builder("executor.rejected", executor, e -> e.getRejectedCount(reason))
+          .tags(tags)
+          .tag("reason", reason.name().toLowerCase(Locale.ROOT))
+          .register(registry);
+    }
+
+    LatencyHistogramMeters.bind(registry, "executor.queue.wait", tags,
+        executor.getQueueWaitHistogram());
+    LatencyHistogramMeters.bind(registry, "executor.execution", tags,
+        executor.getExecutionHistogram());
+  }
+}
@@ -0,0 +1,16 @@
+package com.ares.concurrency.threadpool;
+
+import com.ares.concurrency.threadpool.DefaultThreadPoolExecutor.RejectReason;
+import java.util.Map;
+
+/**
+ * DefaultThreadPoolExecutor 某一时刻的运行状态，耗时单位均为纳秒，计数均为启动以来的累计值
+ */
+public record ThreadPoolSnapshot(long timestamp, int corePoolSize, int maximumPoolSize,
+                                 int poolSize, int largestPoolSize, int activeThreads,
+                                 int peakActiveThreads, int queueSize,
+                                 LatencyHistogram.Snapshot queueWait,
+                                 LatencyHistogram.Snapshot execution,
+                                 Map<RejectReason, Long> rejections) {
+
+}
@@ -13,7 +13,7 @@ public class WorkerQueue extends LinkedTransferQueue<Runnable> {
   }
 
   public boolean force(Runnable o) {
-    if (!executor.isShutdown()) {
+    if (executor.isShutdown()) {
       throw new RejectedExecutionException(
           "Executor not running, can't force a command into the queue");
     }
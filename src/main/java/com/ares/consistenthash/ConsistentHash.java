@@ -1,11 +1,14 @@
 package com.ares.consistenthash;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -22,6 +25,9 @@ public class ConsistentHash<T> {
   private static final int MAX_CACHE_SIZE = 1000;
   private final boolean cacheEnabled;
 
+  private static final int DEFAULT_REPLICA_DEPTH = 3;
+  private volatile RingSnapshot<T> snapshot = RingSnapshot.empty();
+  private final MigrationTracker<T> migrationTracker = new MigrationTracker<>();
 
   public ConsistentHash(HashFunction hashFunction, int virtualNodes) {
     this(hashFunction, virtualNodes, true);
@@ -35,10 +41,8 @@ public class ConsistentHash<T> {
 
   public ConsistentHash(HashFunction hashFunction, int numberOfVirtualNodes, Collection<T> nodes) {
     this(hashFunction, numberOfVirtualNodes, true);
-
-    for (T node : nodes) {
-      addNode(node);
-    }
+    // Add in one batch: a single snapshot rebuild and no migration plans for partial rings
+    addNodes(nodes);
   }
 
   public void addNode(T node) {
@@ -60,6 +64,7 @@ public class ConsistentHash<T> {
         virtualNodeHashes.add(hash);
       }
       nodeToVirtualNodes.put(node, virtualNodeHashes);
+      refreshSnapshot();
       clearCache();
     } finally {
       lock.writeLock().unlock();
@@ -72,6 +77,7 @@ public class ConsistentHash<T> {
     }
     try {
       lock.writeLock().lock();
+      boolean changed = false;
       for (T node : nodes) {
         if (node == null || nodeToVirtualNodes.containsKey(node)) {
           continue;
@@ -85,7 +91,12 @@ public class ConsistentHash<T> {
         }
 
         nodeToVirtualNodes.put(node, virtualNodeHashes);
+        changed = true;
+      }
+      if (!changed) {
+        return;
       }
+      refreshSnapshot();
       clearCache();
     } finally {
       lock.writeLock().unlock();
@@ -103,11 +114,13 @@ public class ConsistentHash<T> {
     try {
       lock.writeLock().lock();
       List<Integer> virtualNodeHashes = nodeToVirtualNodes.remove(node);
-      if (virtualNodeHashes != null) {
-        for (Integer hash : virtualNodeHashes) {
-          circle.remove(hash);
-        }
+      if (virtualNodeHashes == null) {
+        return;
       }
+      for (Integer hash : virtualNodeHashes) {
+        circle.remove(hash);
+      }
+      refreshSnapshot();
       clearCache();
     } finally {
       lock.writeLock().unlock();
@@ -151,6 +164,139 @@ public class ConsistentHash<T> {
     }
   }
 
+  /**
+   * Return up to {@code replicas} distinct physical nodes for the key, in ring order. The first
+   * element is the node {@link #getNode(String)} would return.
+   */
+  public List<T> getNodes(String key, int replicas) {
+    if (key == null) {
+      throw new NullPointerException("Key cannot be null");
+    }
+    if (replicas <= 0) {
+      throw new IllegalArgumentException("Replicas must be positive");
+    }
+
+    return snapshot.preferenceList(hashFunction.hash(key), replicas);
+  }
+
+  /**
+   * Resolve a batch of keys against a single ring snapshot and group them by owning node, e.g. for
+   * multi-get pipelining. Keys are hashed by {@code toString()} and keep their input order within
+   * each group.
+   */
+  @SuppressWarnings("unchecked")
+  public <K> Map<T, List<K>> route(Collection<K> keys) {
+    Map<T, List<K>> groups = new HashMap<>();
+    RingSnapshot<T> ring = snapshot;
+    if (keys == null || keys.isEmpty() || ring.size() == 0) {
+      return groups;
+    }
+
+    Object[] batch = keys.toArray();
+    int[] hashes = new int[batch.length];
+    for (int i = 0; i < batch.length; i++) {
+      if (batch[i] == null) {
+        throw new NullPointerException("Key cannot be null");
+      }
+      hashes[i] = hashFunction.hash(batch[i].toString());
+    }
+
+    Object[] owners = resolve(ring, hashes);
+    for (int i = 0; i < batch.length; i++) {
+      groups.computeIfAbsent((T) owners[i], n -> new ArrayList<>()).add((K) batch[i]);
+    }
+    return groups;
+  }
+
+  /**
+   * Variant of {@link #route(Collection)} for callers that already hold key hashes. Each node maps
+   * to the ascending positions in {@code hashes} that it owns.
+   */
+  @SuppressWarnings("unchecked")
+  public Map<T, int[]> routeHashes(int[] hashes) {
+    Map<T, int[]> groups = new HashMap<>();
+    RingSnapshot<T> ring = snapshot;
+    if (hashes == null || hashes.length == 0 || ring.size() == 0) {
+      return groups;
+    }
+
+    Object[] owners = resolve(ring, hashes);
+    Map<T, int[]> counts = new HashMap<>();
+    for (Object owner : owners) {
+      counts.computeIfAbsent((T) owner, n -> new int[1])[0]++;
+    }
+    for (Map.Entry<T, int[]> entry : counts.entrySet()) {
+      groups.put(entry.getKey(), new int[entry.getValue()[0]]);
+      entry.getValue()[0] = 0;
+    }
+    for (int i = 0; i < owners.length; i++) {
+      T owner = (T) owners[i];
+      groups.get(owner)[counts.get(owner)[0]++] = i;
+    }
+    return groups;
+  }
+
+  // Sort hashes once, carrying their original position in the low 32 bits, then merge with the ring
+  private static Object[] resolve(RingSnapshot<?> ring, int[] hashes) {
+    int n = hashes.length;
+    long[] order = new long[n];
+    for (int i = 0; i < n; i++) {
+      order[i] = ((long) hashes[i] << 32) | i;
+    }
+    Arrays.sort(order);
+
+    int[] sorted = new int[n];
+    for (int i = 0; i < n; i++) {
+      sorted[i] = (int) (order[i] >> 32);
+    }
+    Object[] resolved = new Object[n];
+    ring.resolveSorted(sorted, resolved);
+
+    Object[] owners = new Object[n];
+    for (int i = 0; i < n; i++) {
+      owners[(int) order[i]] = resolved[i];
+    }
+    return owners;
+  }
+
+  // Must be called with the write lock held
+  private void refreshSnapshot() {
+    RingSnapshot<T> previous = snapshot;
+    snapshot = RingSnapshot.of(circle, nodeToVirtualNodes.size(), DEFAULT_REPLICA_DEPTH);
+    migrationTracker.onChange(previous, snapshot);
+  }
+
+  public void addMigrationListener(MigrationListener<T> listener) {
+    migrationTracker.addListener(listener);
+  }
+
+  public void removeMigrationListener(MigrationListener<T> listener) {
+    migrationTracker.removeListener(listener);
+  }
+
+  /**
+   * Keep previous owners visible through {@link #getOwners(String)} for {@code window} after each
+   * membership change.
+   */
+  public void setHandoffWindow(long window, TimeUnit unit) {
+    migrationTracker.setHandoffWindow(window, unit);
+  }
+
+  public void completeHandoff() {
+    migrationTracker.completeHandoff();
+  }
+
+  /**
+   * Current owner of the key, followed by its previous owner while the key's range is being handed
+   * off after a membership change.
+   */
+  public List<T> getOwners(String key) {
+    if (key == null) {
+      throw new NullPointerException("Key cannot be null");
+    }
+    return migrationTracker.owners(snapshot, hashFunction.hash(key));
+  }
+
   private void clearCache() {
     if (cacheEnabled) {
       keyCache.clear();
@@ -0,0 +1,10 @@
+package com.ares.consistenthash;
+
+public interface MigrationListener<T> {
+
+  /**
+   * Called after a membership change moved at least one hash range. Invoked while the ring is
+   * still write-locked, so implementations should hand the plan off rather than copy data inline.
+   */
+  void onMigration(MigrationPlan<T> plan);
+}
@@ -0,0 +1,126 @@
+package com.ares.consistenthash;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Hash ranges whose owner changed between two ring snapshots. Ranges are half-open
+ * {@code [fromHash, toHash)} over the int hash space and held as longs so that the last range can
+ * end at {@code Integer.MAX_VALUE + 1}.
+ */
+public final class MigrationPlan<T> {
+
+  private static final long HASH_SPACE_END = (long) Integer.MAX_VALUE + 1;
+
+  private final List<Range<T>> ranges;
+
+  private MigrationPlan(List<Range<T>> ranges) {
+    this.ranges = Collections.unmodifiableList(ranges);
+  }
+
+  public record Range<T>(long fromHash, long toHash, T oldOwner, T newOwner) {
+
+    public boolean contains(int hash) {
+      return hash >= fromHash && hash < toHash;
+    }
+  }
+
+  /**
+   * Diff two snapshots. Nothing is reported when either side is empty, since there is no previous
+   * owner to move data from or no new owner to move it to.
+   */
+  public static <T> MigrationPlan<T> between(RingSnapshot<T> before, RingSnapshot<T> after) {
+    List<Range<T>> ranges = new ArrayList<>();
+    if (before.size() == 0 || after.size() == 0) {
+      return new MigrationPlan<>(ranges);
+    }
+
+    int[] bounds = mergeBounds(before, after);
+    int last = bounds[bounds.length - 1];
+    T wrapOld = before.nodeAt(bounds[0]);
+    T wrapNew = after.nodeAt(bounds[0]);
+
+    // The arc ending at the smallest boundary wraps around from the largest one
+    if (!Objects.equals(wrapOld, wrapNew)) {
+      add(ranges, Integer.MIN_VALUE, (long) bounds[0] + 1, wrapOld, wrapNew);
+    }
+    for (int i = 1; i < bounds.length; i++) {
+      T oldOwner = before.nodeAt(bounds[i]);
+      T newOwner = after.nodeAt(bounds[i]);
+      if (!Objects.equals(oldOwner, newOwner)) {
+        add(ranges, (long) bounds[i - 1] + 1, (long) bounds[i] + 1, oldOwner, newOwner);
+      }
+    }
+    if (last != Integer.MAX_VALUE && !Objects.equals(wrapOld, wrapNew)) {
+      add(ranges, (long) last + 1, HASH_SPACE_END, wrapOld, wrapNew);
+    }
+    return new MigrationPlan<>(ranges);
+  }
+
+  private static <T> void add(List<Range<T>> ranges, long from, long to, T oldOwner, T newOwner) {
+    if (!ranges.isEmpty()) {
+      Range<T> previous = ranges.get(ranges.size() - 1);
+      if (previous.toHash() == from && Objects.equals(previous.oldOwner(), oldOwner)
+          && Objects.equals(previous.newOwner(), newOwner)) {
+        ranges.set(ranges.size() - 1, new Range<>(previous.fromHash(), to, oldOwner, newOwner));
+        return;
+      }
+    }
+    ranges.add(new Range<>(from, to, oldOwner, newOwner));
+  }
+
+  private static int[] mergeBounds(RingSnapshot<?> a, RingSnapshot<?> b) {
+    int[] merged = new int[a.size() + b.size()];
+    int i = 0;
+    int j = 0;
+    int n = 0;
+    while (i < a.size() || j < b.size()) {
+      int next;
+      if (j == b.size() || (i < a.size() && a.hashAt(i) <= b.hashAt(j))) {
+        next = a.hashAt(i++);
+      } else {
+        next = b.hashAt(j++);
+      }
+      if (n == 0 || merged[n - 1] != next) {
+        merged[n++] = next;
+      }
+    }
+    return n == merged.length ? merged : Arrays.copyOf(merged, n);
+  }
+
+  public List<Range<T>> getRanges() {
+    return ranges;
+  }
+
+  public boolean isEmpty() {
+    return ranges.isEmpty();
+  }
+
+  /**
+   * Range that covers {@code hash}, or null when its owner did not change.
+   */
+  public Range<T> find(int hash) {
+    int low = 0;
+    int high = ranges.size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      Range<T> range = ranges.get(mid);
+      if (hash < range.fromHash()) {
+        high = mid - 1;
+      } else if (hash >= range.toHash()) {
+        low = mid + 1;
+      } else {
+        return range;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public String toString() {
+    return "MigrationPlan{ranges=" + ranges + "}";
+  }
+}
@@ -0,0 +1,127 @@
+package com.ares.consistenthash;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Emits a {@link MigrationPlan} to listeners on every ring change and keeps the previous snapshot
+ * around for a configurable handoff window. During the window lookups for moved ranges return
+ * both the new and the old owner, so a cache tier can read through to the old owner while the new
+ * one warms up.
+ */
+public class MigrationTracker<T> {
+
+  private static final Logger log = LoggerFactory.getLogger(MigrationTracker.class);
+
+  private final List<MigrationListener<T>> listeners = new CopyOnWriteArrayList<>();
+  private volatile long handoffWindowNanos;
+  private volatile Handoff<T> handoff;
+
+  private record Handoff<T>(RingSnapshot<T> previous, MigrationPlan<T> plan, long deadline) {
+
+  }
+
+  public void addListener(MigrationListener<T> listener) {
+    if (listener == null) {
+      throw new NullPointerException("Listener cannot be null");
+    }
+    listeners.add(listener);
+  }
+
+  public void removeListener(MigrationListener<T> listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Keep old owners visible for {@code window} after each change; zero disables staged
+   * transitions.
+   */
+  public void setHandoffWindow(long window, TimeUnit unit) {
+    if (window < 0) {
+      throw new IllegalArgumentException("Handoff window cannot be negative");
+    }
+    this.handoffWindowNanos = unit.toNanos(window);
+    if (window == 0) {
+      handoff = null;
+    }
+  }
+
+  /**
+   * Record a transition between two snapshots. Must be called by the owning ring while it holds
+   * its write lock so that transitions are observed in order.
+   */
+  public void onChange(RingSnapshot<T> before, RingSnapshot<T> after) {
+    if (listeners.isEmpty() && handoffWindowNanos == 0) {
+      return;
+    }
+    MigrationPlan<T> plan = MigrationPlan.between(before, after);
+    if (plan.isEmpty()) {
+      return;
+    }
+
+    if (handoffWindowNanos > 0) {
+      // A change during an open window hands off from the oldest snapshot still being served
+      Handoff<T> current = activeHandoff();
+      RingSnapshot<T> previous = current != null ? current.previous() : before;
+      MigrationPlan<T> effective = current != null ? MigrationPlan.between(previous, after) : plan;
+      handoff = new Handoff<>(previous, effective, System.nanoTime() + handoffWindowNanos);
+    }
+
+    for (MigrationListener<T> listener : listeners) {
+      try {
+        listener.onMigration(plan);
+      } catch (Exception e) {
+        log.error("migration listener failed: {}", listener, e);
+      }
+    }
+  }
+
+  /**
+   * End the current handoff window early, e.g. once the new owners report they are warm.
+   */
+  public void completeHandoff() {
+    handoff = null;
+  }
+
+  public boolean inHandoff() {
+    return activeHandoff() != null;
+  }
+
+  /**
+   * Plan of the handoff in progress, or null when no window is open.
+   */
+  public MigrationPlan<T> currentPlan() {
+    Handoff<T> current = activeHandoff();
+    return current != null ? current.plan() : null;
+  }
+
+  /**
+   * Owners of {@code hash}: the current owner first, followed by the previous owner while the
+   * hash sits in a range that is still being handed off.
+   */
+  public List<T> owners(RingSnapshot<T> current, int hash) {
+    T owner = current.nodeAt(hash);
+    if (owner == null) {
+      return List.of();
+    }
+    Handoff<T> active = activeHandoff();
+    if (active != null) {
+      MigrationPlan.Range<T> range = active.plan().find(hash);
+      if (range != null && range.oldOwner() != null && !range.oldOwner().equals(owner)) {
+        return List.of(owner, range.oldOwner());
+      }
+    }
+    return List.of(owner);
+  }
+
+  private Handoff<T> activeHandoff() {
+    Handoff<T> current = handoff;
+    if (current != null && System.nanoTime() - current.deadline() >= 0) {
+      return null;
+    }
+    return current;
+  }
+}
@@ -0,0 +1,189 @@
+package com.ares.consistenthash;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * Immutable view of a hash ring. Virtual node hashes are kept in a sorted int array and every arc
+ * carries its precomputed preference list, i.e. the distinct physical nodes met when walking the
+ * ring clockwise from that arc. Replica lookups are therefore one binary search plus a sublist.
+ */
+public final class RingSnapshot<T> {
+
+  private static final RingSnapshot<?> EMPTY =
+      new RingSnapshot<>(new int[0], new Object[0], new List<?>[0], 0, 0);
+
+  private final int[] hashes;
+  private final Object[] owners;
+  private final List<T>[] preferences;
+  private final int depth;
+  private final int physicalNodes;
+
+  private RingSnapshot(int[] hashes, Object[] owners, List<?>[] preferences, int depth,
+      int physicalNodes) {
+    this.hashes = hashes;
+    this.owners = owners;
+    @SuppressWarnings("unchecked")
+    List<T>[] lists = (List<T>[]) preferences;
+    this.preferences = lists;
+    this.depth = depth;
+    this.physicalNodes = physicalNodes;
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <T> RingSnapshot<T> empty() {
+    return (RingSnapshot<T>) EMPTY;
+  }
+
+  /**
+   * Build a snapshot of {@code circle} whose preference lists hold up to {@code depth} distinct
+   * physical nodes. A depth of 0 skips the preference lists for callers that only need
+   * {@link #nodeAt(int)}; replica lookups then walk the ring.
+   */
+  public static <T> RingSnapshot<T> of(NavigableMap<Integer, T> circle, int physicalNodes,
+      int depth) {
+    if (depth < 0) {
+      throw new IllegalArgumentException("Depth cannot be negative");
+    }
+    int size = circle.size();
+    if (size == 0 || physicalNodes == 0) {
+      return empty();
+    }
+
+    int[] hashes = new int[size];
+    Object[] owners = new Object[size];
+    int i = 0;
+    for (Map.Entry<Integer, T> entry : circle.entrySet()) {
+      hashes[i] = entry.getKey();
+      owners[i] = entry.getValue();
+      i++;
+    }
+
+    int listSize = Math.min(depth, physicalNodes);
+    List<?>[] preferences = new List<?>[listSize == 0 ? 0 : size];
+    Object[] buffer = new Object[listSize];
+    for (int arc = 0; arc < preferences.length; arc++) {
+      int found = 0;
+      for (int step = 0; step < size && found < listSize; step++) {
+        Object owner = owners[(arc + step) % size];
+        if (!contains(buffer, found, owner)) {
+          buffer[found++] = owner;
+        }
+      }
+      preferences[arc] = Collections.unmodifiableList(Arrays.asList(Arrays.copyOf(buffer, found)));
+    }
+    return new RingSnapshot<>(hashes, owners, preferences, listSize, physicalNodes);
+  }
+
+  private static boolean contains(Object[] buffer, int length, Object owner) {
+    for (int i = 0; i < length; i++) {
+      if (buffer[i].equals(owner)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Index of the first virtual node clockwise from {@code hash}, wrapping to 0 past the end.
+   */
+  public int arcIndex(int hash) {
+    int index = Arrays.binarySearch(hashes, hash);
+    if (index < 0) {
+      index = -index - 1;
+    }
+    return index == hashes.length ? 0 : index;
+  }
+
+  @SuppressWarnings("unchecked")
+  public T nodeAt(int hash) {
+    if (hashes.length == 0) {
+      return null;
+    }
+    return (T) owners[arcIndex(hash)];
+  }
+
+  int hashAt(int arcIndex) {
+    return hashes[arcIndex];
+  }
+
+  /**
+   * Resolve the owner of every hash in {@code sorted}, which must be in ascending order, with a
+   * single forward pass over the ring. The result is written into {@code out} at the same index.
+   * Small batches against a large ring search the remaining range instead of stepping through it.
+   */
+  public void resolveSorted(int[] sorted, Object[] out) {
+    int size = hashes.length;
+    if (size == 0) {
+      Arrays.fill(out, 0, sorted.length, null);
+      return;
+    }
+    boolean search = (long) sorted.length * (32 - Integer.numberOfLeadingZeros(size)) < size;
+    int arc = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      int hash = sorted[i];
+      if (search) {
+        int index = Arrays.binarySearch(hashes, arc, size, hash);
+        arc = index < 0 ? -index - 1 : index;
+      } else {
+        while (arc < size && hashes[arc] < hash) {
+          arc++;
+        }
+      }
+      out[i] = owners[arc == size ? 0 : arc];
+    }
+  }
+
+  /**
+   * First {@code replicas} distinct physical nodes for {@code hash}, read-only. Lookups within
+   * {@link #depth()} return the shared precomputed list; deeper ones walk the ring for this call
+   * only, so an occasional large request does not grow every later snapshot.
+   */
+  public List<T> preferenceList(int hash, int replicas) {
+    if (hashes.length == 0) {
+      return Collections.emptyList();
+    }
+    int arc = arcIndex(hash);
+    if (!covers(replicas)) {
+      return walk(arc, Math.min(replicas, physicalNodes));
+    }
+    List<T> list = preferences[arc];
+    return replicas >= list.size() ? list : list.subList(0, replicas);
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<T> walk(int arc, int replicas) {
+    int size = hashes.length;
+    Object[] buffer = new Object[replicas];
+    int found = 0;
+    for (int step = 0; step < size && found < replicas; step++) {
+      Object owner = owners[(arc + step) % size];
+      if (!contains(buffer, found, owner)) {
+        buffer[found++] = owner;
+      }
+    }
+    return (List<T>) Collections.unmodifiableList(Arrays.asList(Arrays.copyOf(buffer, found)));
+  }
+
+  /**
+   * Whether this snapshot can answer a lookup for {@code replicas} nodes without a rebuild.
+   */
+  public boolean covers(int replicas) {
+    return replicas <= depth || depth >= physicalNodes;
+  }
+
+  public int depth() {
+    return depth;
+  }
+
+  public int size() {
+    return hashes.length;
+  }
+
+  public int physicalNodeCount() {
+    return physicalNodes;
+  }
+}
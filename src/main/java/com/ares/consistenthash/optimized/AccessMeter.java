@@ -0,0 +1,113 @@
+package com.ares.consistenthash.optimized;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-node access accounting that is cheap on the lookup path.
+ * <p>
+ * Recording only touches striped adders, optionally for just one in {@code sampleRate} calls with
+ * the recorded amount scaled up to compensate. Cumulative totals are never reset. The
+ * exponentially decayed load is derived from them on read: a reader that finds the last window
+ * older than one bucket folds the new totals in and publishes the result with a CAS, so no
+ * increments are lost to a sum/reset race.
+ */
+public class AccessMeter {
+
+  private static final long DEFAULT_HALF_LIFE_SECONDS = 60;
+  private static final long BUCKET_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final int sampleRate;
+  // Decay constant per nanosecond, ln(2) / half-life
+  private final double lambda;
+
+  private final LongAdder count = new LongAdder();
+  private final DoubleAdder weight = new DoubleAdder();
+  private final AtomicReference<Window> window;
+
+  // Decayed load as of tick, and the cumulative weight already folded into it
+  private record Window(long tick, double cumulative, double decayed) {
+
+  }
+
+  public AccessMeter() {
+    this(1, DEFAULT_HALF_LIFE_SECONDS, TimeUnit.SECONDS);
+  }
+
+  public AccessMeter(int sampleRate, long halfLife, TimeUnit unit) {
+    if (sampleRate < 1) {
+      throw new IllegalArgumentException("Sample rate must be positive");
+    }
+    if (halfLife <= 0) {
+      throw new IllegalArgumentException("Half-life must be positive");
+    }
+    this.sampleRate = sampleRate;
+    this.lambda = Math.log(2) / unit.toNanos(halfLife);
+    this.window = new AtomicReference<>(new Window(System.nanoTime(), 0, 0));
+  }
+
+  public void record(double accessWeight) {
+    if (sampleRate == 1) {
+      count.increment();
+      weight.add(accessWeight);
+    } else if (ThreadLocalRandom.current().nextInt(sampleRate) == 0) {
+      count.add(sampleRate);
+      weight.add(accessWeight * sampleRate);
+    }
+  }
+
+  /**
+   * Estimated number of recorded accesses since creation.
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * Exponentially decayed sum of recorded weight.
+   */
+  public double getLoad() {
+    Window current = advance();
+    return current.decayed() + (weight.sum() - current.cumulative());
+  }
+
+  /**
+   * Exponentially decayed access rate, in weight per second.
+   */
+  public double getRate() {
+    return getLoad() * lambda * TimeUnit.SECONDS.toNanos(1);
+  }
+
+  /**
+   * Multiply the current load by {@code factor}; 0 resets it.
+   */
+  public void scale(double factor) {
+    while (true) {
+      Window current = window.get();
+      double cumulative = weight.sum();
+      double load = current.decayed() + (cumulative - current.cumulative());
+      if (window.compareAndSet(current, new Window(current.tick(), cumulative, load * factor))) {
+        return;
+      }
+    }
+  }
+
+  private Window advance() {
+    Window current = window.get();
+    long now = System.nanoTime();
+    long elapsed = now - current.tick();
+    if (elapsed < BUCKET_NANOS) {
+      return current;
+    }
+
+    // Weight recorded since the last tick is treated as arriving mid-interval
+    double cumulative = weight.sum();
+    double decayed = current.decayed() * Math.exp(-lambda * elapsed)
+        + (cumulative - current.cumulative()) * Math.exp(-lambda * elapsed / 2);
+    Window next = new Window(now, cumulative, decayed);
+    return window.compareAndSet(current, next) ? next : window.get();
+  }
+}
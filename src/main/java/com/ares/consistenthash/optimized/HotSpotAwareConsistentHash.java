@@ -2,6 +2,9 @@ package com.ares.consistenthash.optimized;
 
 import com.ares.concurrency.DefaultScheduler;
 import com.ares.consistenthash.HashFunction;
+import com.ares.consistenthash.MigrationListener;
+import com.ares.consistenthash.MigrationTracker;
+import com.ares.consistenthash.RingSnapshot;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
@@ -10,13 +13,18 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class HotSpotAwareConsistentHash<T extends LoadAwareNode> {
 
+  // Only one in this many ring lookups is counted towards hot key detection
+  private static final int HOT_KEY_SAMPLE_RATE = 8;
+
   // Hash function
   private final HashFunction hashFunction;
 
@@ -34,13 +42,22 @@ public class HotSpotAwareConsistentHash<T extends LoadAwareNode> {
   // Maps physical nodes to their virtual node count
   private final Map<T, Integer> nodeToVirtualNodeCount = new ConcurrentHashMap<>();
 
-  // Hot key tracking - maps key hashes to access counts
-  private final Map<Integer, Long> hotKeys = new ConcurrentHashMap<>();
+  // Immutable ring copy with per-arc replica preference lists, rebuilt on membership change
+  private volatile RingSnapshot<T> snapshot = RingSnapshot.empty();
+
+  // Preference list depth precomputed per arc; deeper lookups walk the ring
+  private final int replicaDepth;
+
+  private final MigrationTracker<T> migrationTracker = new MigrationTracker<>();
+
+  // Hot key tracking - maps key hashes to sampled access counts
+  private final Map<Integer, LongAdder> hotKeys = new ConcurrentHashMap<>();
 
-  // Hot key cache - directly maps hot keys to nodes to bypass hash lookup
-  private final Map<String, T> hotKeyCache = new ConcurrentHashMap<>();
+  // Hot key cache - maps hot key hashes to the replica nodes serving them, bypassing hash lookup
+  private final Map<Integer, HotKey<T>> hotKeyCache = new ConcurrentHashMap<>();
 
-  private final DefaultScheduler scheduler = new DefaultScheduler(1,
+  // Daemon thread so a ring that is never shut down does not keep the JVM alive
+  private final DefaultScheduler scheduler = new DefaultScheduler(1, true,
       "HotSpotAwareConsistentHash-Scheduler");
 
   private final int maxVirtualNodesPerNode;
@@ -48,6 +65,9 @@ public class HotSpotAwareConsistentHash<T extends LoadAwareNode> {
   private final int maxHotKeys;
   private final double loadImbalanceThreshold;
 
+  // Number of nodes a hot key is spread over; 1 keeps hot keys on their ring owner
+  private final int hotKeyReplicas;
+
 
   private final AtomicBoolean rebalancing = new AtomicBoolean(false);
 
@@ -59,17 +79,35 @@ public class HotSpotAwareConsistentHash<T extends LoadAwareNode> {
       int maxHotKeys,
       boolean enableAutoBalance,
       double loadImbalanceThreshold) {
+    this(hashFunction, baseVirtualNodes, maxVirtualNodesPerNode, hotKeyThreshold, maxHotKeys,
+        enableAutoBalance, loadImbalanceThreshold, 1);
+  }
+
+  public HotSpotAwareConsistentHash(
+      HashFunction hashFunction,
+      int baseVirtualNodes,
+      int maxVirtualNodesPerNode,
+      int hotKeyThreshold,
+      int maxHotKeys,
+      boolean enableAutoBalance,
+      double loadImbalanceThreshold,
+      int hotKeyReplicas) {
+    if (hotKeyReplicas < 1) {
+      throw new IllegalArgumentException("Hot key replicas must be positive");
+    }
     this.hashFunction = hashFunction;
     this.baseVirtualNodes = baseVirtualNodes;
     this.maxVirtualNodesPerNode = maxVirtualNodesPerNode;
     this.hotKeyThreshold = hotKeyThreshold;
     this.maxHotKeys = maxHotKeys;
     this.loadImbalanceThreshold = loadImbalanceThreshold;
+    this.hotKeyReplicas = hotKeyReplicas;
+    this.replicaDepth = Math.max(3, hotKeyReplicas);
 
     if (enableAutoBalance) {
+      scheduler.startup();
       scheduler.schedule(this::processHotKeys, 10, 10, TimeUnit.SECONDS);
       scheduler.schedule(this::rebalanceNodes, 30, 30, TimeUnit.SECONDS);
-      scheduler.schedule(this::decayNodeLoads, 60, 60, TimeUnit.SECONDS);
     }
   }
 
@@ -77,10 +115,8 @@ public class HotSpotAwareConsistentHash<T extends LoadAwareNode> {
   public HotSpotAwareConsistentHash(HashFunction hashFunction, int baseVirtualNodes,
       Collection<T> nodes) {
     this(hashFunction, baseVirtualNodes, baseVirtualNodes * 3, 1000, 100, true, 0.2);
-
-    for (T node : nodes) {
-      addNode(node);
-    }
+    // Add in one batch: a single snapshot rebuild and no migration plans for partial rings
+    addNodes(nodes);
   }
 
   public void addNode(T node) {
@@ -91,22 +127,35 @@ public class HotSpotAwareConsistentHash<T extends LoadAwareNode> {
     try {
       lock.writeLock().lock();
 
-      if (nodeToVirtualNodes.containsKey(node)) {
+      if (!putNode(node)) {
         return;
       }
-      double weight = node.getWeight();
-      int virtualNodeCount = calculateVirtualNodeCount(weight);
+      refreshSnapshot();
 
-      Set<Integer> virtualNodeHashes = new HashSet<>(virtualNodeCount);
+      hotKeyCache.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
 
-      for (int i = 0; i < virtualNodeCount; i++) {
-        int hash = hashFunction.hash(node.getId() + "-" + i);
-        circle.put(hash, node);
-        virtualNodeHashes.add(hash);
-      }
+  public void addNodes(Collection<T> nodes) {
+    if (nodes == null || nodes.isEmpty()) {
+      return;
+    }
 
-      nodeToVirtualNodes.put(node, virtualNodeHashes);
-      nodeToVirtualNodeCount.put(node, virtualNodeCount);
+    try {
+      lock.writeLock().lock();
+
+      boolean changed = false;
+      for (T node : nodes) {
+        if (node != null && putNode(node)) {
+          changed = true;
+        }
+      }
+      if (!changed) {
+        return;
+      }
+      refreshSnapshot();
 
       hotKeyCache.clear();
     } finally {
@@ -114,6 +163,27 @@ public class HotSpotAwareConsistentHash<T extends LoadAwareNode> {
     }
   }
 
+  // Must be called with the write lock held; returns false if the node is already on the ring
+  private boolean putNode(T node) {
+    if (nodeToVirtualNodes.containsKey(node)) {
+      return false;
+    }
+    double weight = node.getWeight();
+    int virtualNodeCount = calculateVirtualNodeCount(weight);
+
+    Set<Integer> virtualNodeHashes = new HashSet<>(virtualNodeCount);
+
+    for (int i = 0; i < virtualNodeCount; i++) {
+      int hash = hashFunction.hash(node.getId() + "-" + i);
+      circle.put(hash, node);
+      virtualNodeHashes.add(hash);
+    }
+
+    nodeToVirtualNodes.put(node, virtualNodeHashes);
+    nodeToVirtualNodeCount.put(node, virtualNodeCount);
+    return true;
+  }
+
   public void removeNode(T node) {
     if (node == null) {
       return;
@@ -123,12 +193,14 @@ public class HotSpotAwareConsistentHash<T extends LoadAwareNode> {
       lock.writeLock().lock();
 
       Set<Integer> virtualNodeHashes = nodeToVirtualNodes.remove(node);
-      if (virtualNodeHashes != null) {
-        for (Integer hash : virtualNodeHashes) {
-          circle.remove(hash);
-        }
-        nodeToVirtualNodeCount.remove(node);
+      if (virtualNodeHashes == null) {
+        return;
+      }
+      for (Integer hash : virtualNodeHashes) {
+        circle.remove(hash);
       }
+      nodeToVirtualNodeCount.remove(node);
+      refreshSnapshot();
 
       hotKeyCache.clear();
     } finally {
@@ -145,10 +217,15 @@ public class HotSpotAwareConsistentHash<T extends LoadAwareNode> {
     if (key == null) {
       throw new NullPointerException("Key cannot be null");
     }
-    T cachedNode = hotKeyCache.get(key);
-    if (cachedNode != null) {
-      cachedNode.recordAccess(hashFunction.hash(key), accessWeight);
-      return cachedNode;
+    int hash = hashFunction.hash(key);
+    HotKey<T> hotKey = hotKeyCache.get(hash);
+    if (hotKey != null) {
+      hotKey.hits.increment();
+      T node = hotKey.choose();
+      if (node != null) {
+        node.recordAccess(hash, accessWeight);
+        return node;
+      }
     }
 
     try {
@@ -158,9 +235,9 @@ public class HotSpotAwareConsistentHash<T extends LoadAwareNode> {
         return null;
       }
 
-      int hash = hashFunction.hash(key);
-
-      hotKeys.compute(hash, (k, v) -> v == null ? 1L : v + 1L);
+      if (ThreadLocalRandom.current().nextInt(HOT_KEY_SAMPLE_RATE) == 0) {
+        hotKeys.computeIfAbsent(hash, k -> new LongAdder()).add(HOT_KEY_SAMPLE_RATE);
+      }
 
       Map.Entry<Integer, T> entry = circle.ceilingEntry(hash);
       if (entry == null) {
@@ -176,20 +253,84 @@ public class HotSpotAwareConsistentHash<T extends LoadAwareNode> {
     }
   }
 
+  /**
+   * Return up to {@code replicas} distinct physical nodes for the key, walking the ring clockwise
+   * and skipping virtual nodes of physical nodes already chosen. Only the primary records access.
+   */
+  public List<T> getNodes(String key, int replicas) {
+    if (key == null) {
+      throw new NullPointerException("Key cannot be null");
+    }
+    if (replicas <= 0) {
+      throw new IllegalArgumentException("Replicas must be positive");
+    }
+
+    int hash = hashFunction.hash(key);
+    List<T> nodes = snapshot.preferenceList(hash, replicas);
+    if (!nodes.isEmpty()) {
+      nodes.get(0).recordAccess(hash, 1.0);
+    }
+    return nodes;
+  }
+
+  // Must be called with the write lock held
+  private void refreshSnapshot() {
+    RingSnapshot<T> previous = snapshot;
+    snapshot = RingSnapshot.of(circle, nodeToVirtualNodes.size(), replicaDepth);
+    migrationTracker.onChange(previous, snapshot);
+  }
+
+  public void addMigrationListener(MigrationListener<T> listener) {
+    migrationTracker.addListener(listener);
+  }
+
+  public void removeMigrationListener(MigrationListener<T> listener) {
+    migrationTracker.removeListener(listener);
+  }
+
+  /**
+   * Keep previous owners visible through {@link #getOwners(String)} for {@code window} after each
+   * membership change.
+   */
+  public void setHandoffWindow(long window, TimeUnit unit) {
+    migrationTracker.setHandoffWindow(window, unit);
+  }
+
+  public void completeHandoff() {
+    migrationTracker.completeHandoff();
+  }
+
+  /**
+   * Current owner of the key, followed by its previous owner while the key's range is being handed
+   * off after a membership change.
+   */
+  public List<T> getOwners(String key) {
+    if (key == null) {
+      throw new NullPointerException("Key cannot be null");
+    }
+    return migrationTracker.owners(snapshot, hashFunction.hash(key));
+  }
+
   private int calculateVirtualNodeCount(double weight) {
     int virtualNodes = (int) Math.max(1, Math.ceil(baseVirtualNodes * weight));
     return Math.min(virtualNodes, maxVirtualNodesPerNode);
   }
 
   private void processHotKeys() {
-    if (hotKeys.isEmpty() || circle.isEmpty()) {
+    demoteHotKeys();
+    if (hotKeys.isEmpty()) {
       return;
     }
 
     try {
       lock.readLock().lock();
+      // Checked under the lock, every node may have been removed concurrently
+      if (circle.isEmpty()) {
+        return;
+      }
 
       List<Map.Entry<Integer, Long>> topHotKeys = hotKeys.entrySet().stream()
+          .map(e -> Map.entry(e.getKey(), e.getValue().sum()))
           .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed())
           .limit(maxHotKeys)
           .filter(e -> e.getValue() >= hotKeyThreshold)
@@ -197,21 +338,27 @@ public class HotSpotAwareConsistentHash<T extends LoadAwareNode> {
 
       hotKeys.clear();
 
+      RingSnapshot<T> ring = snapshot;
       for (Map.Entry<Integer, Long> entry : topHotKeys) {
-        int keyHash = entry.getKey();
-
-        Map.Entry<Integer, T> nodeEntry = circle.ceilingEntry(keyHash);
-        if (nodeEntry == null) {
-          nodeEntry = circle.firstEntry();
+        if (hotKeyCache.size() >= maxHotKeys) {
+          break;
+        }
+        List<T> replicas = ring.preferenceList(entry.getKey(), hotKeyReplicas);
+        if (!replicas.isEmpty()) {
+          hotKeyCache.computeIfAbsent(entry.getKey(), hash -> new HotKey<>(replicas));
         }
-
-        hotKeyCache.put("hash-" + keyHash, nodeEntry.getValue());
       }
     } finally {
       lock.readLock().unlock();
     }
   }
 
+  // Keys that fell below half the promotion threshold in the last period go back to the ring
+  private void demoteHotKeys() {
+    long coolThreshold = hotKeyThreshold / 2;
+    hotKeyCache.values().removeIf(hotKey -> hotKey.hits.sumThenReset() < coolThreshold);
+  }
+
   private void rebalanceNodes() {
     if (rebalancing.getAndSet(true) || nodeToVirtualNodes.isEmpty()) {
       return;
@@ -241,6 +388,7 @@ public class HotSpotAwareConsistentHash<T extends LoadAwareNode> {
         return;
       }
 
+      boolean changed = false;
       for (T node : nodes) {
         double load = node.getLoad();
         double loadFactor = avgLoad > 0 ? load / avgLoad : 1.0;
@@ -263,8 +411,13 @@ public class HotSpotAwareConsistentHash<T extends LoadAwareNode> {
           }
           nodeToVirtualNodes.put(node, newHashes);
           nodeToVirtualNodeCount.put(node, newVirtualNodes);
+          changed = true;
         }
       }
+      if (!changed) {
+        return;
+      }
+      refreshSnapshot();
       hotKeyCache.clear();
     } finally {
       lock.writeLock().unlock();
@@ -273,26 +426,49 @@ public class HotSpotAwareConsistentHash<T extends LoadAwareNode> {
   }
 
 
-  private void decayNodeLoads() {
-    try {
-      lock.readLock().lock();
-
-      for (T node : nodeToVirtualNodes.keySet()) {
-        if (node instanceof WeightedNode) {
-          ((WeightedNode) node).decayLoad(0.5);
-        }
-      }
-    } finally {
-      lock.readLock().unlock();
-    }
+  public boolean isHotKey(String key) {
+    return hotKeyCache.containsKey(hashFunction.hash(key));
   }
 
   public Collection<T> getNodes() {
     return new ArrayList<>(nodeToVirtualNodes.keySet());
   }
 
+  /**
+   * Stop the hot key and rebalancing tasks started when auto balance is enabled.
+   */
   public void shutdown() {
     scheduler.shutdown();
   }
 
+  private static final class HotKey<T extends LoadAwareNode> {
+
+    private final List<T> replicas;
+    private final LongAdder hits = new LongAdder();
+
+    private HotKey(List<T> replicas) {
+      this.replicas = replicas;
+    }
+
+    // Power of two choices: sample two distinct replicas and take the less loaded one. Returns
+    // null when there is no replica, the caller then falls back to the ring
+    private T choose() {
+      int size = replicas.size();
+      if (size == 0) {
+        return null;
+      }
+      if (size == 1) {
+        return replicas.get(0);
+      }
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      int first = random.nextInt(size);
+      int second = random.nextInt(size - 1);
+      if (second >= first) {
+        second++;
+      }
+      T a = replicas.get(first);
+      T b = replicas.get(second);
+      return a.getLoad() <= b.getLoad() ? a : b;
+    }
+  }
 }
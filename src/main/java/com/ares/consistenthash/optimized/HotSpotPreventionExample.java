@@ -16,6 +16,7 @@ public class HotSpotPreventionExample {
   private static final int NUM_NODES = 5;
   private static final int NUM_KEYS = 100_000;
   private static final int HOT_KEY_THRESHOLD = 100;
+  private static final int HOT_KEY_REPLICAS = 3;
 
   public static void main(String[] args) throws Exception {
 
@@ -33,12 +34,11 @@ public class HotSpotPreventionExample {
         HOT_KEY_THRESHOLD,
         100,
         true,
-        0.2
+        0.2,
+        HOT_KEY_REPLICAS
     );
 
-    for (WeightedNode node : nodes) {
-      hashRing.addNode(node);
-    }
+    hashRing.addNodes(nodes);
 
     List<String> keys = new ArrayList<>(NUM_KEYS);
     for (int i = 0; i < NUM_KEYS; i++) {
@@ -1,8 +1,7 @@
 package com.ares.consistenthash.optimized;
 
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.TimeUnit;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -15,8 +14,7 @@ public class WeightedNode implements LoadAwareNode {
   @Getter
   private final String ip;
 
-  private final AtomicLong requestCount = new AtomicLong(0);
-  private final DoubleAdder loadMetric = new DoubleAdder();
+  private final AccessMeter accessMeter;
 
   @Setter
   private volatile double capacity;
@@ -24,11 +22,26 @@ public class WeightedNode implements LoadAwareNode {
   private final int hashCode;
 
   public WeightedNode(String id, String name, String ip, double capacity) {
+    this(id, name, ip, capacity, new AccessMeter());
+  }
+
+  /**
+   * @param sampleRate record one in {@code sampleRate} accesses, scaled up accordingly
+   * @param halfLife   time for the recorded load to decay by half
+   */
+  public WeightedNode(String id, String name, String ip, double capacity, int sampleRate,
+      long halfLife, TimeUnit unit) {
+    this(id, name, ip, capacity, new AccessMeter(sampleRate, halfLife, unit));
+  }
+
+  private WeightedNode(String id, String name, String ip, double capacity,
+      AccessMeter accessMeter) {
     this.id = id;
     this.name = name;
     this.ip = ip;
 
     this.capacity = capacity;
+    this.accessMeter = accessMeter;
     this.hashCode = Objects.hash(id);
   }
 
@@ -37,20 +50,21 @@ public class WeightedNode implements LoadAwareNode {
       throw new IllegalArgumentException("Decay factor must be between 0 and 1");
     }
 
-    double currentLoad = loadMetric.sum();
-    loadMetric.reset();
-    loadMetric.add(currentLoad * factor);
+    accessMeter.scale(factor);
   }
 
   public long getRequestCount() {
-    return requestCount.get();
+    return accessMeter.getCount();
+  }
+
+  public double getRate() {
+    return accessMeter.getRate();
   }
 
 
   @Override
   public void recordAccess(int keyHash, double weight) {
-    requestCount.incrementAndGet();
-    loadMetric.add(weight);
+    accessMeter.record(weight);
   }
 
 
@@ -61,7 +75,7 @@ public class WeightedNode implements LoadAwareNode {
 
   @Override
   public double getLoad() {
-    return loadMetric.sum();
+    return accessMeter.getLoad();
   }
 
   @Override
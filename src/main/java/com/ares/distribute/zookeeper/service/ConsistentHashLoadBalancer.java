@@ -1,8 +1,12 @@
 package com.ares.distribute.zookeeper.service;
 
+import com.ares.consistenthash.HashFunction;
+import com.ares.consistenthash.MurmurHashFunction;
+import com.ares.consistenthash.RingSnapshot;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.curator.x.discovery.ServiceInstance;
 
 public class ConsistentHashLoadBalancer implements LoadBalancer<ServiceInstance<ServiceMeta>> {
@@ -10,34 +14,68 @@ public class ConsistentHashLoadBalancer implements LoadBalancer<ServiceInstance<
   private final static String VIRTUAL_NODE_SPLIT = "#";
   private final static int VIRTUAL_NODE_SIZE = 10;
 
+  private final HashFunction hashFunction;
+  private final int virtualNodes;
+
+  // Built rings per service name, reused until the discovered instance set changes
+  private final Map<String, CachedRing> rings = new ConcurrentHashMap<>();
+
+  private record CachedRing(long version, RingSnapshot<ServiceInstance<ServiceMeta>> ring) {
+
+  }
+
+  public ConsistentHashLoadBalancer() {
+    this(new MurmurHashFunction(), VIRTUAL_NODE_SIZE);
+  }
+
+  public ConsistentHashLoadBalancer(HashFunction hashFunction, int virtualNodes) {
+    this.hashFunction = hashFunction;
+    this.virtualNodes = virtualNodes;
+  }
+
   @Override
   public ServiceInstance<ServiceMeta> select(List<ServiceInstance<ServiceMeta>> instances,
       int hashCode) {
     if (instances == null || instances.isEmpty()) {
       return null;
     }
-    TreeMap<Integer, ServiceInstance<ServiceMeta>> circle = buildConsistentHashRing(instances);
-    return allocateNode(circle, hashCode);
+    return buildConsistentHashRing(instances).nodeAt(hashCode);
   }
 
-  private ServiceInstance<ServiceMeta> allocateNode(
-      TreeMap<Integer, ServiceInstance<ServiceMeta>> circle, int hashCode) {
-    Map.Entry<Integer, ServiceInstance<ServiceMeta>> entry = circle.ceilingEntry(hashCode);
-    if (entry == null) {
-      entry = circle.firstEntry();
+  /**
+   * Select from the cached ring of {@code serviceName}. The ring is rebuilt only when
+   * {@code version} differs from the one it was built for, so callers must bump the version
+   * whenever {@code instances} changes.
+   */
+  public ServiceInstance<ServiceMeta> select(String serviceName, long version,
+      List<ServiceInstance<ServiceMeta>> instances, int hashCode) {
+    CachedRing cached = rings.get(serviceName);
+    if (cached == null || cached.version() != version) {
+      if (instances == null || instances.isEmpty()) {
+        rings.remove(serviceName);
+        return null;
+      }
+      cached = new CachedRing(version, buildConsistentHashRing(instances));
+      rings.put(serviceName, cached);
     }
-    return entry.getValue();
+    return cached.ring().nodeAt(hashCode);
+  }
+
+  public void invalidate(String serviceName) {
+    rings.remove(serviceName);
   }
 
-  private TreeMap<Integer, ServiceInstance<ServiceMeta>> buildConsistentHashRing(
+  private RingSnapshot<ServiceInstance<ServiceMeta>> buildConsistentHashRing(
       List<ServiceInstance<ServiceMeta>> servers) {
     TreeMap<Integer, ServiceInstance<ServiceMeta>> ring = new TreeMap<>();
     for (ServiceInstance<ServiceMeta> instance : servers) {
-      for (int i = 0; i < VIRTUAL_NODE_SIZE; i++) {
-        ring.put((buildServiceInstanceKey(instance) + VIRTUAL_NODE_SPLIT + i).hashCode(), instance);
+      String instanceKey = buildServiceInstanceKey(instance);
+      for (int i = 0; i < virtualNodes; i++) {
+        ring.put(hashFunction.hash(instanceKey + VIRTUAL_NODE_SPLIT + i), instance);
       }
     }
-    return ring;
+    // Only the owner is ever read, so skip the per-arc preference lists
+    return RingSnapshot.of(ring, servers.size(), 0);
   }
 
   private String buildServiceInstanceKey(ServiceInstance<ServiceMeta> instance) {
@@ -1,19 +1,29 @@
 package com.ares.distribute.zookeeper.service;
 
 import com.ares.distribute.zookeeper.CuratorProperties;
-import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.state.ConnectionState;
 import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.x.discovery.ServiceCache;
 import org.apache.curator.x.discovery.ServiceDiscovery;
 import org.apache.curator.x.discovery.ServiceDiscoveryBuilder;
 import org.apache.curator.x.discovery.ServiceInstance;
 import org.apache.curator.x.discovery.details.JsonInstanceSerializer;
+import org.apache.curator.x.discovery.details.ServiceCacheListener;
 
 public class ZkRegistry implements Registry {
 
   private final ServiceDiscovery<ServiceMeta> discovery;
+  private final ConsistentHashLoadBalancer loadBalancer = new ConsistentHashLoadBalancer();
+
+  // Watched instance lists per namespace; the version is bumped on every cache change. Entries of
+  // services without instances are closed and evicted so short-lived names do not leak watches
+  private final Map<String, ServiceEntry> services = new ConcurrentHashMap<>();
 
   public ZkRegistry(CuratorProperties properties) throws Exception {
     CuratorFramework client = CuratorFrameworkFactory.newClient(properties.getAddress(),
@@ -59,11 +69,20 @@ public class ZkRegistry implements Registry {
   public ServiceMeta lookup(String group, String serviceName,
       String version, int hashCode) throws Exception {
 
-    Collection<ServiceInstance<ServiceMeta>> instances = discovery
-        .queryForInstances(buildNamespace(group, serviceName, version));
+    String namespace = buildNamespace(group, serviceName, version);
+    ServiceEntry entry = serviceEntry(namespace);
+
+    // Read the version before the instances so a concurrent change forces a rebuild next time
+    long instancesVersion = entry.version.get();
+    List<ServiceInstance<ServiceMeta>> instances = entry.cache.getInstances();
+
+    if (instances.isEmpty()) {
+      evict(namespace, entry);
+      return null;
+    }
 
-    ServiceInstance<ServiceMeta> instance = new ConsistentHashLoadBalancer()
-        .select((List<ServiceInstance<ServiceMeta>>) instances, hashCode);
+    ServiceInstance<ServiceMeta> instance = loadBalancer.select(namespace, instancesVersion,
+        instances, hashCode);
 
     if (instance != null) {
       return instance.getPayload();
@@ -71,7 +90,72 @@ public class ZkRegistry implements Registry {
     return null;
   }
 
+  public void close() throws Exception {
+    for (Map.Entry<String, ServiceEntry> e : services.entrySet()) {
+      evict(e.getKey(), e.getValue());
+    }
+    discovery.close();
+  }
+
+  private ServiceEntry serviceEntry(String namespace) throws Exception {
+    ServiceEntry entry = services.get(namespace);
+    if (entry != null) {
+      return entry;
+    }
+    synchronized (services) {
+      entry = services.get(namespace);
+      if (entry == null) {
+        evictEmpty();
+        ServiceCache<ServiceMeta> cache = discovery.serviceCacheBuilder().name(namespace).build();
+        entry = new ServiceEntry(cache);
+        cache.addListener(entry);
+        cache.start();
+        services.put(namespace, entry);
+      }
+      return entry;
+    }
+  }
+
+  // Must be called while holding the services lock
+  private void evictEmpty() throws Exception {
+    for (Map.Entry<String, ServiceEntry> e : services.entrySet()) {
+      if (e.getValue().cache.getInstances().isEmpty()) {
+        evict(e.getKey(), e.getValue());
+      }
+    }
+  }
+
+  private void evict(String namespace, ServiceEntry entry) throws Exception {
+    // Only the caller that removes the entry closes it, ServiceCache cannot be closed twice
+    if (services.remove(namespace, entry)) {
+      loadBalancer.invalidate(namespace);
+      entry.cache.close();
+    }
+  }
+
   private String buildNamespace(String group, String application, String version) {
     return group + "#" + application + "#" + version;
   }
+
+  private static class ServiceEntry implements ServiceCacheListener {
+
+    private final ServiceCache<ServiceMeta> cache;
+    private final AtomicLong version = new AtomicLong();
+
+    private ServiceEntry(ServiceCache<ServiceMeta> cache) {
+      this.cache = cache;
+    }
+
+    @Override
+    public void cacheChanged() {
+      version.incrementAndGet();
+    }
+
+    @Override
+    public void stateChanged(CuratorFramework client, ConnectionState newState) {
+      if (newState == ConnectionState.RECONNECTED) {
+        version.incrementAndGet();
+      }
+    }
+  }
 }
@@ -0,0 +1,44 @@
+package com.ares;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.ares.concurrency.threadpool.DeadlineThreadPoolExecutor;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.Test;
+
+public class DeadlineThreadPoolExecutorTest {
+
+  @Test
+  void testExpiredTaskFailsFast() throws Exception {
+    DeadlineThreadPoolExecutor executor = new DeadlineThreadPoolExecutor(1, 10);
+    CountDownLatch blocker = new CountDownLatch(1);
+    try {
+      // Occupy the only worker so that the next task waits in the queue
+      executor.submit(() -> {
+        blocker.await();
+        return null;
+      }, 1, TimeUnit.SECONDS);
+      Future<String> late = executor.submit(() -> "late", 10, TimeUnit.MILLISECONDS);
+      Future<String> inTime = executor.submit(() -> "in time", 10, TimeUnit.SECONDS);
+
+      // Wait past the deadline of the second task
+      Thread.sleep(100);
+      blocker.countDown();
+
+      ExecutionException e = assertThrows(ExecutionException.class,
+          () -> late.get(1, TimeUnit.SECONDS), "Expired task should not run");
+      assertInstanceOf(TimeoutException.class, e.getCause(), "Expired task should time out");
+      assertEquals("in time", inTime.get(1, TimeUnit.SECONDS), "Task within deadline should run");
+      assertEquals(1, executor.getExpired(), "One task should expire");
+      assertEquals(0, executor.getPendingCount(), "No task should be pending");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
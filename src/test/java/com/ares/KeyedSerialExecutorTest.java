@@ -0,0 +1,76 @@
+package com.ares;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ares.concurrency.KeyedSerialExecutor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+public class KeyedSerialExecutorTest {
+
+  @Test
+  void testPerKeyOrdering() throws InterruptedException {
+    final int KEY_COUNT = 8;
+    final int TASKS_PER_KEY = 1000;
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    KeyedSerialExecutor serial = new KeyedSerialExecutor(executor, 4, 16);
+    List<List<Integer>> results = new ArrayList<>();
+    IntStream.range(0, KEY_COUNT).forEach(k -> results.add(new ArrayList<>()));
+    CountDownLatch latch = new CountDownLatch(KEY_COUNT * TASKS_PER_KEY);
+
+    // Interleave keys so that several keys share a stripe
+    for (int i = 0; i < TASKS_PER_KEY; i++) {
+      for (int k = 0; k < KEY_COUNT; k++) {
+        List<Integer> result = results.get(k);
+        int value = i;
+        serial.execute(k, () -> {
+          result.add(value);
+          latch.countDown();
+        });
+      }
+    }
+
+    assertTrue(latch.await(10, TimeUnit.SECONDS), "All tasks should complete");
+    executor.shutdown();
+
+    for (int k = 0; k < KEY_COUNT; k++) {
+      List<Integer> result = results.get(k);
+      assertEquals(TASKS_PER_KEY, result.size(), "Key " + k + " should run every task");
+      for (int i = 0; i < TASKS_PER_KEY; i++) {
+        assertEquals(i, result.get(i), "Key " + k + " should run tasks in submission order");
+      }
+    }
+  }
+
+  @Test
+  void testSameKeyNeverRunsConcurrently() throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    KeyedSerialExecutor serial = new KeyedSerialExecutor(executor, 64, 4);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger overlaps = new AtomicInteger();
+    CountDownLatch latch = new CountDownLatch(2000);
+
+    for (int i = 0; i < 2000; i++) {
+      serial.execute("key", () -> {
+        if (running.incrementAndGet() > 1) {
+          overlaps.incrementAndGet();
+        }
+        running.decrementAndGet();
+        latch.countDown();
+      });
+    }
+
+    assertTrue(latch.await(10, TimeUnit.SECONDS), "All tasks should complete");
+    executor.shutdown();
+    assertEquals(0, overlaps.get(), "Tasks of the same key should not overlap");
+  }
+}
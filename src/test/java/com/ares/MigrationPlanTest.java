@@ -0,0 +1,85 @@
+package com.ares;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ares.consistenthash.ConsistentHash;
+import com.ares.consistenthash.HashFunction;
+import com.ares.consistenthash.MigrationPlan;
+import com.ares.consistenthash.MurmurHashFunction;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class MigrationPlanTest {
+
+  private static final int KEY_COUNT = 10000;
+
+  @Test
+  void testAddNodeMovesRangesToNewNode() {
+    HashFunction hashFunction = new MurmurHashFunction();
+    ConsistentHash<String> ring = new ConsistentHash<>(hashFunction, 100, false);
+    ring.addNodes(List.of("node-a", "node-b", "node-c"));
+    Map<String, String> before = owners(ring);
+
+    List<MigrationPlan<String>> plans = new ArrayList<>();
+    ring.addMigrationListener(plans::add);
+    ring.addNode("node-d");
+
+    assertEquals(1, plans.size(), "One membership change should produce one plan");
+    MigrationPlan<String> plan = plans.get(0);
+    assertFalse(plan.isEmpty(), "Adding a node should move some ranges");
+
+    long previousEnd = Long.MIN_VALUE;
+    for (MigrationPlan.Range<String> range : plan.getRanges()) {
+      assertTrue(range.fromHash() < range.toHash(), "Range should not be empty");
+      assertTrue(range.fromHash() >= previousEnd, "Ranges should be sorted and disjoint");
+      assertEquals("node-d", range.newOwner(), "Only the new node should gain ranges");
+      previousEnd = range.toHash();
+    }
+
+    // A range is reported for a key exactly when the key changed owner
+    for (int i = 0; i < KEY_COUNT; i++) {
+      String key = "key-" + i;
+      MigrationPlan.Range<String> range = plan.find(hashFunction.hash(key));
+      String after = ring.getNode(key);
+      if (after.equals(before.get(key))) {
+        assertNull(range, "Key " + key + " kept its owner");
+      } else {
+        assertNotNull(range, "Key " + key + " moved to " + after);
+        assertEquals(before.get(key), range.oldOwner(), "Range should name the previous owner");
+        assertEquals(after, range.newOwner(), "Range should name the current owner");
+      }
+    }
+  }
+
+  @Test
+  void testRemoveNodeMovesOnlyItsRanges() {
+    HashFunction hashFunction = new MurmurHashFunction();
+    ConsistentHash<String> ring = new ConsistentHash<>(hashFunction, 100, false);
+    ring.addNodes(List.of("node-a", "node-b", "node-c"));
+
+    List<MigrationPlan<String>> plans = new ArrayList<>();
+    ring.addMigrationListener(plans::add);
+    ring.removeNode("node-b");
+
+    assertEquals(1, plans.size(), "One membership change should produce one plan");
+    for (MigrationPlan.Range<String> range : plans.get(0).getRanges()) {
+      assertEquals("node-b", range.oldOwner(), "Only the removed node should lose ranges");
+    }
+  }
+
+  private static Map<String, String> owners(ConsistentHash<String> ring) {
+    Map<String, String> owners = new HashMap<>();
+    for (int i = 0; i < KEY_COUNT; i++) {
+      String key = "key-" + i;
+      owners.put(key, ring.getNode(key));
+    }
+    return owners;
+  }
+}
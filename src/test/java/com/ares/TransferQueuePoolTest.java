@@ -0,0 +1,102 @@
+package com.ares;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.ares.concurrency.pooled.PooledFactory;
+import com.ares.concurrency.pooled.PooledProperties;
+import com.ares.concurrency.pooled.TransferQueuePool;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TransferQueuePoolTest {
+
+  private final AtomicInteger created = new AtomicInteger();
+  private TransferQueuePool<Integer> pool;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    PooledProperties properties = new PooledProperties(2, 0, 500, TimeUnit.MILLISECONDS);
+    pool = new TransferQueuePool<>(properties, new PooledFactory<>() {
+      @Override
+      public Integer create() {
+        return created.incrementAndGet();
+      }
+
+      @Override
+      public void destroy(Integer obj) {
+      }
+
+      @Override
+      public boolean validate(Integer obj) {
+        return true;
+      }
+    });
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    pool.close();
+  }
+
+  @Test
+  void testDoubleReleaseIsIgnored() throws Exception {
+    Integer resource = pool.tryAcquire();
+    pool.release(resource);
+    pool.release(resource);
+
+    assertEquals(1, pool.getIdle(), "Resource should be idle once");
+    assertEquals(0, pool.getActive(), "No resource should be active");
+
+    // The same resource must not be handed out twice
+    Integer first = pool.tryAcquire();
+    Integer second = pool.tryAcquire();
+    assertNotEquals(first, second, "Two borrowers should get different resources");
+  }
+
+  @Test
+  void testStaleReleaseAfterInvalidate() throws Exception {
+    Integer resource = pool.tryAcquire();
+    pool.release(resource);
+
+    // Another thread borrows the same resource and invalidates it
+    ExecutorService other = Executors.newSingleThreadExecutor();
+    try {
+      Integer borrowed = other.submit(() -> {
+        Integer r = pool.tryAcquire();
+        pool.invalidate(r);
+        return r;
+      }).get();
+      assertEquals(resource, borrowed, "Idle resource should be reused");
+    } finally {
+      other.shutdown();
+    }
+
+    // A late release of the invalidated resource must not put it back
+    pool.release(resource);
+    assertNotEquals(resource, pool.tryAcquire(), "Invalidated resource should not be reused");
+  }
+
+  @Test
+  void testHandOffToWaiter() throws Exception {
+    Integer first = pool.tryAcquire();
+    Integer second = pool.tryAcquire();
+
+    CompletableFuture<Integer> waiter = pool.acquireAsync(1, TimeUnit.SECONDS);
+    assertFalse(waiter.isDone(), "Waiter should block while the pool is exhausted");
+
+    pool.release(first);
+    assertSame(first, waiter.get(1, TimeUnit.SECONDS), "Released resource should go to the waiter");
+    assertEquals(0, pool.getIdle(), "Handed-off resource should not become idle");
+
+    pool.release(second);
+  }
+}
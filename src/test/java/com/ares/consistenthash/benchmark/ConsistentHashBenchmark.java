@@ -0,0 +1,254 @@
+package com.ares.consistenthash.benchmark;
+
+import com.ares.consistenthash.ConsistentHash;
+import com.ares.consistenthash.FNVHashFunction;
+import com.ares.consistenthash.HashFunction;
+import com.ares.consistenthash.MurmurHashFunction;
+import com.ares.consistenthash.Node;
+import com.ares.consistenthash.optimized.HotSpotAwareConsistentHash;
+import com.ares.consistenthash.optimized.WeightedNode;
+import com.ares.distribute.zookeeper.service.ConsistentHashLoadBalancer;
+import com.ares.distribute.zookeeper.service.ServiceMeta;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.curator.x.discovery.ServiceInstance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Lookup throughput and latency of the ring implementations, with and without concurrent
+ * membership churn.
+ * <p>
+ * Run with {@code mvn package} and then this class's main method, or filter parameters with the
+ * usual JMH options, e.g. {@code -p nodes=100 -p ring=CONSISTENT}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConsistentHashBenchmark {
+
+  private static final int KEY_COUNT = 1 << 16;
+
+  public enum Ring {
+    CONSISTENT, HOTSPOT, LOAD_BALANCER
+  }
+
+  public enum Hash {
+    FNV, MURMUR
+  }
+
+  @Param({"CONSISTENT", "HOTSPOT", "LOAD_BALANCER"})
+  private Ring ring;
+
+  @Param({"FNV", "MURMUR"})
+  private Hash hash;
+
+  @Param({"10", "100", "1000"})
+  private int nodes;
+
+  @Param({"10", "100", "200"})
+  private int virtualNodes;
+
+  // CPU tokens burnt by the churn thread between two membership changes
+  @Param({"100000"})
+  private long churnBackoff;
+
+  private String[] keys;
+  private Router router;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    keys = new String[KEY_COUNT];
+    for (int i = 0; i < KEY_COUNT; i++) {
+      keys[i] = "key-" + i;
+    }
+    HashFunction hashFunction = hash == Hash.FNV ? new FNVHashFunction() : new MurmurHashFunction();
+    router = switch (ring) {
+      case CONSISTENT -> new ConsistentHashRouter(hashFunction, virtualNodes, nodes);
+      case HOTSPOT -> new HotSpotRouter(hashFunction, virtualNodes, nodes);
+      case LOAD_BALANCER -> new LoadBalancerRouter(hashFunction, virtualNodes, nodes);
+    };
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    router.close();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public Object getNode() {
+    return router.route(nextKey());
+  }
+
+  @Benchmark
+  @Group("churn")
+  @GroupThreads(3)
+  public Object getNodeDuringChurn() {
+    return router.route(nextKey());
+  }
+
+  @Benchmark
+  @Group("churn")
+  @GroupThreads(1)
+  public void churn() {
+    router.churn(ThreadLocalRandom.current().nextInt(nodes));
+    Blackhole.consumeCPU(churnBackoff);
+  }
+
+  private String nextKey() {
+    return keys[ThreadLocalRandom.current().nextInt(KEY_COUNT)];
+  }
+
+  private interface Router {
+
+    Object route(String key);
+
+    // Remove one member and add it back
+    void churn(int index);
+
+    default void close() {
+    }
+  }
+
+  private static final class ConsistentHashRouter implements Router {
+
+    private final ConsistentHash<Node> ring;
+    private final List<Node> members = new ArrayList<>();
+
+    private ConsistentHashRouter(HashFunction hashFunction, int virtualNodes, int nodes) {
+      for (int i = 0; i < nodes; i++) {
+        members.add(new Node("node-" + i, "Node " + i, "10.0." + (i / 256) + "." + (i % 256)));
+      }
+      // The key cache would turn the benchmark into a map lookup
+      this.ring = new ConsistentHash<>(hashFunction, virtualNodes, false);
+      ring.addNodes(members);
+    }
+
+    @Override
+    public Object route(String key) {
+      return ring.getNode(key);
+    }
+
+    @Override
+    public void churn(int index) {
+      Node node = members.get(index);
+      ring.removeNode(node);
+      ring.addNode(node);
+    }
+  }
+
+  private static final class HotSpotRouter implements Router {
+
+    private final HotSpotAwareConsistentHash<WeightedNode> ring;
+    private final List<WeightedNode> members = new ArrayList<>();
+
+    private HotSpotRouter(HashFunction hashFunction, int virtualNodes, int nodes) {
+      this.ring = new HotSpotAwareConsistentHash<>(hashFunction, virtualNodes, virtualNodes * 3,
+          1000, 100, false, 0.2);
+      for (int i = 0; i < nodes; i++) {
+        WeightedNode node = new WeightedNode("node-" + i, "Node " + i,
+            "10.0." + (i / 256) + "." + (i % 256), Double.MAX_VALUE);
+        members.add(node);
+      }
+      ring.addNodes(members);
+    }
+
+    @Override
+    public Object route(String key) {
+      return ring.getNode(key);
+    }
+
+    @Override
+    public void churn(int index) {
+      WeightedNode node = members.get(index);
+      ring.removeNode(node);
+      ring.addNode(node);
+    }
+
+    @Override
+    public void close() {
+      ring.shutdown();
+    }
+  }
+
+  private static final class LoadBalancerRouter implements Router {
+
+    private static final String SERVICE = "A#benchmark-service#1.0";
+
+    private final ConsistentHashLoadBalancer balancer;
+    private final HashFunction hashFunction;
+    private final List<ServiceInstance<ServiceMeta>> all = new ArrayList<>();
+    private volatile Members members;
+
+    private record Members(long version, List<ServiceInstance<ServiceMeta>> instances) {
+
+    }
+
+    private LoadBalancerRouter(HashFunction hashFunction, int virtualNodes, int nodes)
+        throws Exception {
+      this.balancer = new ConsistentHashLoadBalancer(hashFunction, virtualNodes);
+      this.hashFunction = hashFunction;
+      for (int i = 0; i < nodes; i++) {
+        ServiceMeta meta = new ServiceMeta();
+        meta.setApplication("benchmark-service");
+        meta.setHost("10.0." + (i / 256) + "." + (i % 256));
+        meta.setPort(8080);
+        all.add(ServiceInstance.<ServiceMeta>builder()
+            .name(SERVICE)
+            .address(meta.getHost())
+            .port(meta.getPort())
+            .payload(meta)
+            .build());
+      }
+      this.members = new Members(0, List.copyOf(all));
+    }
+
+    @Override
+    public Object route(String key) {
+      Members current = members;
+      return balancer.select(SERVICE, current.version(), current.instances(),
+          hashFunction.hash(key));
+    }
+
+    // Mirrors two service cache events: the instance list changes and the version is bumped
+    @Override
+    public void churn(int index) {
+      List<ServiceInstance<ServiceMeta>> without = new ArrayList<>(all);
+      without.remove(index);
+      long version = members.version();
+      members = new Members(version + 1, without);
+      members = new Members(version + 2, List.copyOf(all));
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    Options options = new OptionsBuilder()
+        .include(ConsistentHashBenchmark.class.getSimpleName())
+        .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,110 @@
+package com.ares.consistenthash.benchmark;
+
+import com.ares.consistenthash.ConsistentHash;
+import com.ares.consistenthash.FNVHashFunction;
+import com.ares.consistenthash.HashFunction;
+import com.ares.consistenthash.MurmurHashFunction;
+import com.ares.consistenthash.Node;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prints load-distribution quality of {@link ConsistentHash} for a grid of node counts, virtual
+ * node counts and hash functions, to help pick a virtual node count:
+ * <ul>
+ *   <li>stddev - standard deviation of keys per node, relative to the mean</li>
+ *   <li>max/avg - keys on the busiest node divided by the mean</li>
+ *   <li>moved+/moved- - share of keys that changed owner when one node is added / removed,
+ *   next to the ideal share of 1/(n+1) and 1/n</li>
+ * </ul>
+ */
+public class DistributionReport {
+
+  private static final int KEYS = 200_000;
+  private static final int[] NODE_COUNTS = {10, 100, 1000};
+  private static final int[] VIRTUAL_NODE_COUNTS = {10, 50, 100, 200, 500};
+
+  public static void main(String[] args) {
+    List<String> keys = new ArrayList<>(KEYS);
+    for (int i = 0; i < KEYS; i++) {
+      keys.add("key-" + i);
+    }
+
+    Map<String, HashFunction> hashFunctions = new LinkedHashMap<>();
+    hashFunctions.put("FNV", new FNVHashFunction());
+    hashFunctions.put("Murmur", new MurmurHashFunction());
+
+    System.out.printf("%-7s %6s %6s %8s %8s %8s %8s %8s %8s%n", "hash", "nodes", "vnodes",
+        "stddev", "max/avg", "moved+", "ideal+", "moved-", "ideal-");
+    for (Map.Entry<String, HashFunction> hash : hashFunctions.entrySet()) {
+      for (int nodeCount : NODE_COUNTS) {
+        for (int virtualNodes : VIRTUAL_NODE_COUNTS) {
+          report(hash.getKey(), hash.getValue(), nodeCount, virtualNodes, keys);
+        }
+      }
+    }
+  }
+
+  private static void report(String hashName, HashFunction hashFunction, int nodeCount,
+      int virtualNodes, List<String> keys) {
+    List<Node> nodes = new ArrayList<>(nodeCount + 1);
+    for (int i = 0; i <= nodeCount; i++) {
+      nodes.add(new Node("node-" + i, "Node " + i, "10.0." + (i / 256) + "." + (i % 256)));
+    }
+    Node extra = nodes.remove(nodeCount);
+
+    ConsistentHash<Node> ring = new ConsistentHash<>(hashFunction, virtualNodes, false);
+    ring.addNodes(nodes);
+    Map<String, Node> baseline = assign(ring, keys);
+
+    Map<Node, Integer> counts = new HashMap<>();
+    for (Node node : nodes) {
+      counts.put(node, 0);
+    }
+    for (Node node : baseline.values()) {
+      counts.merge(node, 1, Integer::sum);
+    }
+    double mean = (double) keys.size() / nodeCount;
+    double variance = 0;
+    int max = 0;
+    for (int count : counts.values()) {
+      variance += (count - mean) * (count - mean);
+      max = Math.max(max, count);
+    }
+    double stddev = Math.sqrt(variance / nodeCount) / mean;
+
+    ring.addNode(extra);
+    double movedOnAdd = moved(baseline, assign(ring, keys));
+    ring.removeNode(extra);
+
+    ring.removeNode(nodes.get(0));
+    double movedOnRemove = moved(baseline, assign(ring, keys));
+
+    System.out.printf("%-7s %6d %6d %7.2f%% %8.3f %7.2f%% %7.2f%% %7.2f%% %7.2f%%%n", hashName,
+        nodeCount, virtualNodes, stddev * 100, max / mean, movedOnAdd * 100,
+        100.0 / (nodeCount + 1), movedOnRemove * 100, 100.0 / nodeCount);
+  }
+
+  private static Map<String, Node> assign(ConsistentHash<Node> ring, List<String> keys) {
+    Map<String, Node> owners = new HashMap<>(keys.size() * 2);
+    for (Map.Entry<Node, List<String>> group : ring.route(keys).entrySet()) {
+      for (String key : group.getValue()) {
+        owners.put(key, group.getKey());
+      }
+    }
+    return owners;
+  }
+
+  private static double moved(Map<String, Node> before, Map<String, Node> after) {
+    int moved = 0;
+    for (Map.Entry<String, Node> entry : before.entrySet()) {
+      if (!entry.getValue().equals(after.get(entry.getKey()))) {
+        moved++;
+      }
+    }
+    return (double) moved / before.size();
+  }
+}